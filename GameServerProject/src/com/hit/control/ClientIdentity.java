@@ -1,5 +1,5 @@
 package com.hit.control;
-import com.hit.server.HandleRequest;
+import com.hit.server.ClientHandler;
 import javaNK.util.communication.JSON;
 import javaNK.util.communication.NetworkInformation;
 import javaNK.util.communication.Protocol;
@@ -8,20 +8,25 @@ public class ClientIdentity
 {
 	private String name;
 	private String avatarID;
+	private NetworkInformation clientInfo;
 	private Protocol protocol;
-	private HandleRequest handler;
+	private ClientHandler handler;
 	private boolean isSociopath;
 	
 	/**
 	 * @param name - Client's in-game name
 	 * @param avatarID - The ID of the client's avatar
-	 * @param prot - Protocol that's used to communicate with the client
+	 * @param clientInfo - The network information of the client
+	 * @param prot - Protocol that's used to communicate with the client (null if the client is served by a shared channel)
 	 * @param handler - The private serving thread of the client
 	 * @param singlePlayer - True if the client wants to play against the computer
 	 */
-	public ClientIdentity(String name, String avatarID, Protocol prot, HandleRequest handler, boolean singlePlayer) {
+	public ClientIdentity(String name, String avatarID, NetworkInformation clientInfo,
+						  Protocol prot, ClientHandler handler, boolean singlePlayer) {
+		
 		this.name = new String(name);
 		this.avatarID = avatarID;
+		this.clientInfo = clientInfo;
 		this.protocol = prot;
 		this.handler = handler;
 		this.isSociopath = singlePlayer;
@@ -31,10 +36,7 @@ public class ClientIdentity
 	public boolean equals(Object other) {
 		try {
 			ClientIdentity otherId = (ClientIdentity) other;
-			NetworkInformation thisInfo = protocol.getRemoteNetworkInformation();
-			NetworkInformation otherInfo = otherId.getProtocol().getRemoteNetworkInformation();
-			
-			return name.equals(otherId.name) && thisInfo.equals(otherInfo);
+			return name.equals(otherId.name) && clientInfo.equals(otherId.clientInfo);
 		}
 		catch (ClassCastException ex) { return false; }
 	}
@@ -54,6 +56,11 @@ public class ClientIdentity
 	 */
 	public String getAvatarID() { return avatarID; }
 	
+	/**
+	 * @return the network information of the client.
+	 */
+	public NetworkInformation getClientInfo() { return clientInfo; }
+	
 	/**
 	 * @return the protocol that's used to communicate with the client.
 	 */
@@ -65,14 +72,14 @@ public class ClientIdentity
 	public void setProtocol(Protocol prot) { protocol = prot; }
 	
 	/**
-	 * @return the HandleRequest object that's assigned to serve the client. 
+	 * @return the handler that's assigned to serve the client. 
 	 */
-	public HandleRequest getHandler() { return handler; }
+	public ClientHandler getHandler() { return handler; }
 	
 	/**
 	 * @param hr - The new handler for the client to use
 	 */
-	public void setHandler(HandleRequest hr) { handler = hr; }
+	public void setHandler(ClientHandler hr) { handler = hr; }
 	
 	/**
 	 * @return true if the client wants to play against the computer.
@@ -95,7 +102,6 @@ public class ClientIdentity
 	
 	@Override
 	public String toString() {
-		NetworkInformation clientInfo = protocol.getRemoteNetworkInformation();
 		return "[Name: " + name + ", Avatar: " + avatarID + ", Client: " + clientInfo + "]";
 	}
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package com.hit.control;
+
+class FlatBoard
+{
+	private byte[] cells;
+	private int rows, cols;
+	
+	/**
+	 * @param rows - The amount of rows on the board
+	 * @param cols - The amount of columns on the board
+	 */
+	public FlatBoard(int rows, int cols) {
+		this.rows = rows;
+		this.cols = cols;
+		this.cells = new byte[rows * cols]; //all board signs are ASCII characters, so a byte holds each one
+	}
+	
+	/**
+	 * Copy a board of the game algo into this board.
+	 * 
+	 * @param board - The board to copy
+	 */
+	public void copyFrom(char[][] board) {
+		for (int i = 0, spot = 0; i < rows; i++)
+			for (int j = 0; j < cols; j++, spot++)
+				cells[spot] = (byte) board[i][j];
+	}
+	
+	/**
+	 * Copy this board into a board of the game algo.
+	 * 
+	 * @param board - The board to copy into
+	 */
+	public void copyTo(char[][] board) {
+		for (int i = 0, spot = 0; i < rows; i++)
+			for (int j = 0; j < cols; j++, spot++)
+				board[i][j] = (char) cells[spot];
+	}
+	
+	/**
+	 * @param spot - The flat index of a cell
+	 * @return the sign in the cell.
+	 */
+	public char get(int spot) { return (char) cells[spot]; }
+	
+	/**
+	 * @param spot - The flat index of a cell
+	 * @param sign - The new sign of the cell
+	 */
+	public void set(int spot, char sign) { cells[spot] = (byte) sign; }
+	
+	/**
+	 * @param sign - The sign to look for
+	 * @return the flat index of the first cell that holds the sign, or -1 if there's none.
+	 */
+	public int locate(char sign) {
+		byte value = (byte) sign;
+		
+		for (int i = 0; i < cells.length; i++)
+			if (cells[i] == value) return i;
+		
+		return -1;
+	}
+	
+	/**
+	 * Find a cell where a sign appears on a board of the game algo, but not on this board.
+	 * 
+	 * @param board - The board to compare with
+	 * @param sign - The sign to look for
+	 * @return the flat index of the first such cell, or -1 if there's none.
+	 */
+	public int diff(char[][] board, char sign) {
+		return diff(board, sign, 0, rows - 1, 0, cols - 1);
+	}
+	
+	/**
+	 * Find a cell around another cell (or the cell itself),
+	 * where a sign appears on a board of the game algo, but not on this board.
+	 * 
+	 * @param board - The board to compare with
+	 * @param sign - The sign to look for
+	 * @param spot - The flat index of the cell in the middle
+	 * @return the flat index of the first such cell, or -1 if there's none.
+	 */
+	public int diffAround(char[][] board, char sign, int spot) {
+		int row = spot / cols, col = spot % cols;
+		return diff(board, sign, Math.max(0, row - 1), Math.min(rows - 1, row + 1),
+								 Math.max(0, col - 1), Math.min(cols - 1, col + 1));
+	}
+	
+	private int diff(char[][] board, char sign, int fromRow, int toRow, int fromCol, int toCol) {
+		byte value = (byte) sign;
+		
+		for (int i = fromRow; i <= toRow; i++) {
+			char[] row = board[i];
+			
+			for (int j = fromCol; j <= toCol; j++)
+				if (row[j] == sign && cells[i * cols + j] != value) return i * cols + j;
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * @return the amount of cells on the board.
+	 */
+	public int size() { return cells.length; }
+}
\ No newline at end of file
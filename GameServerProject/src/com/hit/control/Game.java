@@ -1,7 +1,10 @@
 package com.hit.control;
 import java.awt.Dimension;
+import java.io.File;
+import java.io.IOException;
 
 import game_algo.GameBoard;
+import game_algo.GameBoard.GameMove;
 import game_algo.IGameAlgo;
 import games.CatchTheBunny;
 import games.CatchTheBunnyRandom;
@@ -12,67 +15,151 @@ import games.TicTacToeSmart;
 
 public enum Game
 {
-	TIC_TAC_TOE(2, new Dimension(3, 3), true,
+	TIC_TAC_TOE(2, new Dimension(3, 3), true, true,
 				TicTacToeSmart.class, TicTacToeRandom.class,
 				TicTacToe.BoardSigns.PLAYER.getSign(),
-				TicTacToe.BoardSigns.COMPUTER.getSign()),
+				TicTacToe.BoardSigns.COMPUTER.getSign(),
+				new LineRules(3)),
 	
-	CATCH_THE_BUNNY(2, new Dimension(9, 9), false,
+	CATCH_THE_BUNNY(2, new Dimension(9, 9), false, false,
 					CatchTheBunnySmart.class, CatchTheBunnyRandom.class,
 					CatchTheBunny.BoardSigns.PLAYER.getSign(),
-					CatchTheBunny.BoardSigns.COMPUTER.getSign());
+					CatchTheBunny.BoardSigns.COMPUTER.getSign(),
+					null);
+	
+	private static final int POOL_CAPACITY = 32;
+	private static final int SEARCH_DEPTH = 9;
+	private static final long SEARCH_BUDGET = 100;
+	private static final int TABLE_SIZE_POWER = 16;
+	private static final String BOOKS_FOLDER = "books";
 	
 	private int clientsGoal;
 	private char playerSign, compSign;
 	private boolean addedSigns;
 	private Dimension boardSize;
-	private Class<? extends GameBoard> smartClass, randomClass;
+	private GameMove[][] moves;
+	private ModelPool smartPool, randomPool;
+	private SearchRules rules;
+	private SearchEngine searchEngine;
+	private volatile MoveBook moveBook;
 	
 	/**
 	 * @param goal - The amount of clients needed to start a game
 	 * @param boardSize - The size of the board (amount of cells)
 	 * @param addedSigns - True if the game adds signs on the board, or false if they're moved
+	 * @param reusable - True if the game's models keep all of their state in the board, so they can be reused
 	 * @param smrtCls - The class of the game's smart model
 	 * @param rndCls - The class of the game's random model
 	 * @param playerSign - Sign of the human player on the board
 	 * @param compSign - Sign of the computer player on the board
+	 * @param rules - The rules the server's own search engine plays by (in reusable games only),
+	 * 				  or null to let the smart model make the computer's moves
 	 */
-	private Game(int goal, Dimension boardSize, boolean addedSigns,
+	private Game(int goal, Dimension boardSize, boolean addedSigns, boolean reusable,
 			     Class<? extends GameBoard> smrtCls,
 			     Class<? extends GameBoard> rndCls,
-			     char playerSign, char compSign) {
+			     char playerSign, char compSign, SearchRules rules) {
 		
 		this.clientsGoal = goal;
 		this.boardSize = boardSize;
-		this.smartClass = smrtCls;
-		this.randomClass = rndCls;
+		this.smartPool = new ModelPool(smrtCls, POOL_CAPACITY, reusable);
+		this.randomPool = new ModelPool(rndCls, POOL_CAPACITY, reusable);
 		this.playerSign = playerSign;
 		this.compSign = compSign;
 		this.addedSigns = addedSigns;
+		this.rules = rules;
+		
+		//the engine writes its moves straight into the board, which only holds a model's whole state in reusable games
+		if (rules != null && reusable) this.searchEngine = new SearchEngine(rules, SEARCH_DEPTH, SEARCH_BUDGET, TABLE_SIZE_POWER);
+		
+		//create the move to every cell once, so the move path doesn't allocate them
+		this.moves = new GameMove[boardSize.height][boardSize.width];
+		for (int i = 0; i < boardSize.height; i++)
+			for (int j = 0; j < boardSize.width; j++)
+				moves[i][j] = new GameMove(i, j);
 	}
 	
 	/**
 	 * @return the game's smart model object.
 	 */
-	public IGameAlgo getSmartModel() { return getModel(smartClass); }
+	public IGameAlgo getSmartModel() { return smartPool.acquire(); }
 	
 	/**
 	 * @return the game's random model object.
 	 */
-	public IGameAlgo getRandomModel() { return getModel(randomClass); }
+	public IGameAlgo getRandomModel() { return randomPool.acquire(); }
+	
+	/**
+	 * Return a smart model that owns its board, after its game is over.
+	 * 
+	 * @param model - The model to return
+	 */
+	public void releaseSmartModel(IGameAlgo model) { smartPool.release(model); }
+	
+	/**
+	 * Clear the board of a smart model that owns its board, so a new game can be played on it.
+	 * 
+	 * @param model - The model to reset
+	 * @return true if the board has been cleared, or false if the game's models can't be reset.
+	 */
+	public boolean resetSmartModel(IGameAlgo model) { return smartPool.reset(model); }
+	
+	/**
+	 * Return a random model after its game is over.
+	 * 
+	 * @param model - The model to return
+	 */
+	public void releaseRandomModel(IGameAlgo model) { randomPool.release(model); }
+	
+	/**
+	 * @param model - The model to check
+	 * @return true if the model is one of the game's random models.
+	 */
+	public boolean isRandomModel(IGameAlgo model) { return randomPool.isPooled(model); }
 	
 	/**
-	 * @param c - The model's class
-	 * @return a new object of the model.
+	 * Build the models of every game ahead of time.
 	 */
-	private IGameAlgo getModel(Class<? extends GameBoard> c) {
-		try { return c.asSubclass(GameBoard.class).getConstructor().newInstance(); }
-		catch(Exception e) {
-			e.printStackTrace();
-			return null;
+	public static void warmUp() {
+		for (Game game : values()) {
+			game.smartPool.warmUp();
+			game.randomPool.warmUp();
+			game.loadMoveBook();
 		}
 	}
 	
+	/**
+	 * Load the best move of every board from a file, if the game is small enough to have one.
+	 * The book is generated by the search engine the first time, and saved for the next starts.
+	 */
+	private void loadMoveBook() {
+		if (!(rules instanceof LineRules) || rules.getCellsAmount() > MoveBook.MAX_CELLS) return;
+		
+		File file = new File(BOOKS_FOLDER, name().toLowerCase() + ".book");
+		try { moveBook = MoveBook.load(file, boardSize.width, rules); }
+		catch(IOException e) { e.printStackTrace(); }
+	}
+	
+	/**
+	 * @return the engine that searches for the computer's moves, or null if the smart model makes them.
+	 */
+	SearchEngine getSearchEngine() { return searchEngine; }
+	
+	/**
+	 * @return the book of the best moves, or null if the game has none (or it hasn't been loaded).
+	 */
+	MoveBook getMoveBook() { return moveBook; }
+	
+	/**
+	 * @param row - The row of the cell
+	 * @param col - The column of the cell
+	 * @return the shared move object that leads to the cell (or a new one if the cell is off the board).
+	 */
+	public GameMove getMove(int row, int col) {
+		if (row < 0 || col < 0 || row >= boardSize.height || col >= boardSize.width) return new GameMove(row, col);
+		else return moves[row][col];
+	}
+	
 	/**
 	 * @return true if the game adds signs to board, or false if it moves them around. 
 	 */
@@ -0,0 +1,99 @@
+package com.hit.control;
+
+class LineRules implements SearchRules
+{
+	private int size;
+	private int[][] lines, linesOfCell;
+	private int[] weights;
+	
+	/**
+	 * @param size - The length of the square board's side (a full line of that length wins)
+	 */
+	public LineRules(int size) {
+		this.size = size;
+		this.lines = new int[size * 2 + 2][size];
+		
+		//rows, columns and two diagonals
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				lines[i][j] = i * size + j;
+				lines[size + i][j] = j * size + i;
+			}
+			
+			lines[size * 2][i] = i * size + i;
+			lines[size * 2 + 1][i] = i * size + (size - 1 - i);
+		}
+		
+		//the lines that pass through each cell
+		this.linesOfCell = new int[size * size][];
+		for (int cell = 0; cell < linesOfCell.length; cell++) {
+			int row = cell / size, col = cell % size;
+			int amount = 2 + (row == col ? 1 : 0) + (row + col == size - 1 ? 1 : 0);
+			int[] cellLines = new int[amount];
+			
+			cellLines[0] = row;
+			cellLines[1] = size + col;
+			int index = 2;
+			if (row == col) cellLines[index++] = size * 2;
+			if (row + col == size - 1) cellLines[index++] = size * 2 + 1;
+			linesOfCell[cell] = cellLines;
+		}
+		
+		//a line is worth more the closer it is to being full
+		this.weights = new int[size + 1];
+		for (int i = 1; i <= size; i++) weights[i] = weights[i - 1] * 4 + 1;
+	}
+	
+	@Override
+	public int getCellsAmount() { return size * size; }
+	
+	@Override
+	public int generateMoves(byte[] cells, int[] moves) {
+		int amount = 0;
+		
+		for (int i = 0; i < cells.length; i++)
+			if (cells[i] == EMPTY) moves[amount++] = i;
+		
+		return amount;
+	}
+	
+	@Override
+	public boolean isWinningMove(byte[] cells, int move) {
+		byte side = cells[move];
+		
+		for (int line : linesOfCell[move]) {
+			boolean full = true;
+			
+			for (int cell : lines[line]) {
+				if (cells[cell] != side) {
+					full = false;
+					break;
+				}
+			}
+			
+			if (full) return true;
+		}
+		
+		return false;
+	}
+	
+	@Override
+	public int evaluate(byte[] cells, byte side) {
+		int score = 0;
+		
+		//only lines that one side alone occupies can still be won
+		for (int[] line : lines) {
+			int own = 0, other = 0;
+			
+			for (int cell : line) {
+				if (cells[cell] == side) own++;
+				else if (cells[cell] != EMPTY) other++;
+			}
+			
+			if (other == 0) score += weights[own];
+			else if (own == 0) score -= weights[other];
+		}
+		
+		return score;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,97 @@
+package com.hit.control;
+
+class LineTracker
+{
+	private int size;
+	private FlatBoard cells;
+	private char emptySign;
+	private boolean[] complete;
+	private int completeLines, filledCells;
+	
+	/**
+	 * @param size - The length of the square board's side
+	 * @param cells - The flat board to track (the tracker only reads it)
+	 * @param emptySign - The sign of an empty cell
+	 */
+	public LineTracker(int size, FlatBoard cells, char emptySign) {
+		this.size = size;
+		this.cells = cells;
+		this.emptySign = emptySign;
+		this.complete = new boolean[size * 2 + 2]; //rows, columns and two diagonals
+		rebuild();
+	}
+	
+	/**
+	 * Count the complete lines and filled cells of the whole board from scratch.
+	 */
+	public void rebuild() {
+		completeLines = 0;
+		filledCells = 0;
+		
+		for (int i = 0; i < cells.size(); i++)
+			if (cells.get(i) != emptySign) filledCells++;
+		
+		for (int line = 0; line < complete.length; line++) {
+			complete[line] = isComplete(line);
+			if (complete[line]) completeLines++;
+		}
+	}
+	
+	/**
+	 * Update the counters after one cell has changed.
+	 * 
+	 * @param spot - The flat index of the changed cell
+	 * @param oldSign - The sign the cell held before the change
+	 */
+	public void update(int spot, char oldSign) {
+		if (oldSign == emptySign && cells.get(spot) != emptySign) filledCells++;
+		else if (oldSign != emptySign && cells.get(spot) == emptySign) filledCells--;
+		
+		int row = spot / size, col = spot % size;
+		updateLine(row);
+		updateLine(size + col);
+		if (row == col) updateLine(size * 2);
+		if (row + col == size - 1) updateLine(size * 2 + 1);
+	}
+	
+	/**
+	 * @return true if the game might have ended (some line is complete or the board is full).
+	 */
+	public boolean mayHaveEnded() {
+		return completeLines > 0 || filledCells == cells.size();
+	}
+	
+	private void updateLine(int line) {
+		boolean wasComplete = complete[line];
+		complete[line] = isComplete(line);
+		
+		if (complete[line] && !wasComplete) completeLines++;
+		else if (!complete[line] && wasComplete) completeLines--;
+	}
+	
+	/**
+	 * @param line - The index of the line (rows, then columns, then the main and anti diagonals)
+	 * @return true if all of the line's cells hold the same sign.
+	 */
+	private boolean isComplete(int line) {
+		char first = cells.get(cellOf(line, 0));
+		if (first == emptySign) return false;
+		
+		for (int i = 1; i < size; i++)
+			if (cells.get(cellOf(line, i)) != first) return false;
+		
+		return true;
+	}
+	
+	/**
+	 * @param line - The index of the line
+	 * @param i - The position of the cell along the line
+	 * @return the flat index of the cell.
+	 */
+	private int cellOf(int line, int i) {
+		if (line < size) return line * size + i;
+		else if (line < size * 2) return i * size + (line - size);
+		else if (line == size * 2) return i * size + i;
+		else return i * size + (size - 1 - i);
+	}
+}
\ No newline at end of file
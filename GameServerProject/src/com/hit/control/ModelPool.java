@@ -0,0 +1,113 @@
+package com.hit.control;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import game_algo.GameBoard;
+import game_algo.IGameAlgo;
+
+class ModelPool
+{
+	private Class<? extends GameBoard> type;
+	private MethodHandle constructor;
+	private BlockingQueue<IGameAlgo> idleModels;
+	private volatile char[][] pristineBoard;
+	private boolean reusable;
+	
+	/**
+	 * @param c - The model's class
+	 * @param capacity - The maximum amount of idle models to keep
+	 * @param reusable - True if a model can be reset by restoring its board,
+	 * 					 or false if it keeps more state and must never be reused
+	 */
+	public ModelPool(Class<? extends GameBoard> c, int capacity, boolean reusable) {
+		this.type = c;
+		this.idleModels = new ArrayBlockingQueue<IGameAlgo>(capacity);
+		this.reusable = reusable;
+		
+		//look the constructor up once, instead of reflecting on every new model
+		try {
+			MethodType type = MethodType.methodType(void.class);
+			this.constructor = MethodHandles.publicLookup().findConstructor(c, type);
+		}
+		catch(Exception e) { e.printStackTrace(); }
+	}
+	
+	/**
+	 * @return an idle model, or a new one if there's none.
+	 */
+	public IGameAlgo acquire() {
+		IGameAlgo model = idleModels.poll();
+		return (model != null) ? model : create();
+	}
+	
+	/**
+	 * Reset a model and keep it for a later use.
+	 * The model must not be used by the caller anymore.
+	 * 
+	 * @param model - The model to return
+	 */
+	public void release(IGameAlgo model) {
+		if (reset(model)) idleModels.offer(model);
+	}
+	
+	/**
+	 * Restore the board of a model to the state of a new model.
+	 * 
+	 * @param model - The model to reset
+	 * @return true if the model has been reset, or false if models of this class can't be reset.
+	 */
+	public boolean reset(IGameAlgo model) {
+		if (!reusable || model == null || pristineBoard == null) return false;
+		
+		char[][] board = model.getBoardState();
+		for (int i = 0; i < pristineBoard.length; i++)
+			System.arraycopy(pristineBoard[i], 0, board[i], 0, pristineBoard[i].length);
+		
+		return true;
+	}
+	
+	/**
+	 * @param model - The model to check
+	 * @return true if the model is an object of this pool's class.
+	 */
+	public boolean isPooled(IGameAlgo model) {
+		return model != null && model.getClass() == type;
+	}
+	
+	/**
+	 * Fill the pool with new models, so the first games don't pay for building them.
+	 */
+	public void warmUp() {
+		while (idleModels.remainingCapacity() > 0) {
+			IGameAlgo model = create();
+			if (model == null || !idleModels.offer(model)) return;
+		}
+	}
+	
+	/**
+	 * @return a new object of the model.
+	 */
+	private IGameAlgo create() {
+		try {
+			IGameAlgo model = (IGameAlgo) constructor.invoke();
+			if (reusable && pristineBoard == null) pristineBoard = copy(model.getBoardState());
+			return model;
+		}
+		catch(Throwable e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+	
+	/**
+	 * @param board - The board to copy
+	 * @return a deep copy of the board.
+	 */
+	private static char[][] copy(char[][] board) {
+		char[][] copy = new char[board.length][];
+		for (int i = 0; i < board.length; i++) copy[i] = board[i].clone();
+		return copy;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,174 @@
+package com.hit.control;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+class MoveBook
+{
+	public static final int MAX_CELLS = 9;
+	private static final byte NO_MOVE = -1;
+	private static final int SYMMETRIES_AMOUNT = 8;
+	private static final long GENERATION_BUDGET = TimeUnit.MINUTES.toMillis(1);
+	private static final int GENERATION_TABLE_POWER = 18;
+	
+	private MappedByteBuffer moves;
+	private int cellsAmount;
+	
+	/*
+	 * symmetries[s][i] is the cell of the original board that lands on cell i after the symmetry s.
+	 * weights[s][j] is the weight of the original cell j in the code of the board after the symmetry s,
+	 * so the code of every symmetric board is found without building it.
+	 */
+	private int[][] symmetries, weights;
+	
+	/**
+	 * @param size - The length of the square board's side
+	 * @param moves - The best move of every canonical board, by its code
+	 */
+	private MoveBook(int size, MappedByteBuffer moves) {
+		this.cellsAmount = size * size;
+		this.moves = moves;
+		this.symmetries = createSymmetries(size);
+		this.weights = new int[SYMMETRIES_AMOUNT][cellsAmount];
+		
+		for (int s = 0; s < SYMMETRIES_AMOUNT; s++)
+			for (int i = 0, weight = 1; i < cellsAmount; i++, weight *= 3)
+				weights[s][symmetries[s][i]] = weight;
+	}
+	
+	/**
+	 * Load a book from a file, or generate it (and save it to the file) if the file isn't there.
+	 * 
+	 * @param file - The book's file
+	 * @param size - The length of the square board's side
+	 * @param rules - The rules of the game
+	 * @return the loaded book.
+	 * @throws IOException when the file can neither be read nor written.
+	 */
+	public static MoveBook load(File file, int size, SearchRules rules) throws IOException {
+		int positions = power(3, size * size);
+		
+		if (!file.exists() || file.length() != positions) {
+			if (file.getParentFile() != null) file.getParentFile().mkdirs();
+			Files.write(file.toPath(), generate(size, rules, positions));
+		}
+		
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return new MoveBook(size, channel.map(FileChannel.MapMode.READ_ONLY, 0, positions));
+		}
+	}
+	
+	/**
+	 * Search the best move of every canonical board that's still being played.
+	 * 
+	 * @param size - The length of the square board's side
+	 * @param rules - The rules of the game
+	 * @param positions - The amount of possible boards
+	 * @return the best move of every canonical board, by its code (NO_MOVE for any other board).
+	 */
+	private static byte[] generate(int size, SearchRules rules, int positions) {
+		MoveBook codec = new MoveBook(size, null);
+		SearchEngine engine = new SearchEngine(rules, size * size, GENERATION_BUDGET, GENERATION_TABLE_POWER);
+		byte[] book = new byte[positions];
+		byte[] cells = new byte[size * size];
+		Arrays.fill(book, NO_MOVE);
+		
+		for (int code = 0; code < positions; code++) {
+			for (int i = 0, rest = code; i < cells.length; i++, rest /= 3) cells[i] = (byte) (rest % 3);
+			if (codec.canonize(cells) / SYMMETRIES_AMOUNT != code || isOver(cells, rules)) continue;
+			book[code] = (byte) engine.findMove(cells);
+		}
+		
+		return book;
+	}
+	
+	/**
+	 * Find the best move for the computer.
+	 * 
+	 * @param cells - The board, as the search engine sees it (the computer is the ENGINE)
+	 * @return the flat index of the cell to take, or -1 if the book has no move for that board.
+	 */
+	public int lookup(byte[] cells) {
+		int canonical = canonize(cells);
+		byte move = moves.get(canonical / SYMMETRIES_AMOUNT);
+		if (move == NO_MOVE) return -1;
+		
+		//take the move back from the canonical board to the real one
+		int spot = symmetries[canonical % SYMMETRIES_AMOUNT][move];
+		return (cells[spot] == SearchRules.EMPTY) ? spot : -1;
+	}
+	
+	/**
+	 * @param cells - A board
+	 * @return the canonical code of the board (the lowest code among its symmetries),
+	 * 		   times the amount of symmetries, plus the symmetry that leads to it.
+	 */
+	private int canonize(byte[] cells) {
+		int bestCode = Integer.MAX_VALUE, bestSymmetry = 0;
+		
+		for (int s = 0; s < SYMMETRIES_AMOUNT; s++) {
+			int code = 0;
+			for (int j = 0; j < cellsAmount; j++) code += weights[s][j] * cells[j];
+			
+			if (code < bestCode) {
+				bestCode = code;
+				bestSymmetry = s;
+			}
+		}
+		
+		return bestCode * SYMMETRIES_AMOUNT + bestSymmetry;
+	}
+	
+	/**
+	 * @param cells - A board
+	 * @param rules - The rules of the game
+	 * @return true if the board is full, or if any line on it is already won.
+	 */
+	private static boolean isOver(byte[] cells, SearchRules rules) {
+		boolean full = true;
+		
+		for (int i = 0; i < cells.length; i++) {
+			if (cells[i] == SearchRules.EMPTY) full = false;
+			else if (rules.isWinningMove(cells, i)) return true;
+		}
+		
+		return full;
+	}
+	
+	/**
+	 * @param size - The length of the square board's side
+	 * @return the 8 symmetries of the square (4 rotations, each one with and without a reflection).
+	 */
+	private static int[][] createSymmetries(int size) {
+		int[][] symmetries = new int[SYMMETRIES_AMOUNT][size * size];
+		
+		for (int s = 0; s < SYMMETRIES_AMOUNT; s++) {
+			for (int row = 0; row < size; row++) {
+				for (int col = 0; col < size; col++) {
+					int r = row, c = (s >= 4) ? size - 1 - col : col;
+					
+					for (int turn = 0; turn < s % 4; turn++) {
+						int temp = r;
+						r = c;
+						c = size - 1 - temp;
+					}
+					
+					symmetries[s][row * size + col] = r * size + c;
+				}
+			}
+		}
+		
+		return symmetries;
+	}
+	
+	private static int power(int base, int exponent) {
+		int result = 1;
+		for (int i = 0; i < exponent; i++) result *= base;
+		return result;
+	}
+}
\ No newline at end of file
@@ -1,27 +1,38 @@
 package com.hit.control;
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 import com.hit.exception.UnknownIdException;
-import com.hit.server.HandleRequest;
+import com.hit.server.ChannelTransport;
+import com.hit.server.ClientHandler;
 import com.hit.services.GameServerController;
 import game_algo.IGameAlgo;
 import game_algo.IGameAlgo.GameState;
 import javaNK.util.communication.JSON;
 import javaNK.util.communication.NetworkInformation;
-import javaNK.util.communication.Protocol;
 import javaNK.util.math.RNG;
 
 public class OpenGame
 {
-	private static long IDGenerator = 0;
+	private static AtomicLong IDGenerator = new AtomicLong();
 	private Game game;
 	private BoardGameHandler handler;
 	private GameServerController controller;
-	private volatile Set<ClientIdentity> clients;
+	private Map<NetworkInformation, ClientIdentity> clients;
+	private volatile InetSocketAddress[] participants;
 	private volatile Set<NetworkInformation> reservations;
 	private volatile boolean running;
-	private int subsAmount;
+	private volatile int subsAmount;
+	private volatile long lastActivity;
+	private CompletableFuture<Void> pendingWork;
 	private long ID;
 	
 	/**
@@ -34,13 +45,16 @@ public class OpenGame
 		
 		if (game == null) throw new UnknownIdException();
 		
-		this.ID = IDGenerator++;
+		this.ID = IDGenerator.getAndIncrement();
 		this.game = game;
-		this.clients = new HashSet<ClientIdentity>();
+		this.clients = new LinkedHashMap<NetworkInformation, ClientIdentity>();
+		this.participants = new InetSocketAddress[0];
 		this.reservations = reservations;
 		this.handler = new BoardGameHandler(game, chooseRandomGameAlgo());
 		this.controller = controller;
 		this.subsAmount = 0;
+		this.pendingWork = CompletableFuture.completedFuture(null);
+		this.lastActivity = System.currentTimeMillis();
 	}
 	
 	/**
@@ -56,18 +70,21 @@ public class OpenGame
 	 * @param identity - The client's identity
 	 * @return true if after adding the client, the game can run.
 	 */
-	public boolean subscribe(ClientIdentity identity) {
+	public synchronized boolean subscribe(ClientIdentity identity) {
+		touch();
+		
 		//add a client if the game is not running yet
 		if (!canRun()) {
 			try {
 				//create client entry
-				HandleRequest handler = new HandleRequest(this, identity.getProtocol(), clients.size());
+				ClientHandler handler = controller.createHandler(this, identity, clients.size());
 				identity.setHandler(handler);
 				int amount = identity.isSociopath() ? 2 : 1;
 				
 				//add as a subscriber
-				clients.add(identity);
+				clients.put(identity.getClientInfo(), identity);
 				subsAmount += amount;
+				updateParticipants();
 			}
 			catch(IOException e) { return false; }
 		}
@@ -86,24 +103,30 @@ public class OpenGame
 	 * @param clientInfo - The network information of the client to remove
 	 */
 	public void removeClient(NetworkInformation clientInfo) {
-		boolean couldRun = canRun(); //see if the game could run before the removal
-		Protocol leavingClientProt = null;
-		boolean removed = false;
-		
-		ClientIdentity id = identify(clientInfo);
-		
-		if (id != null) {
-			leavingClientProt = id.getProtocol();
-			id.getHandler().kill();
-			int amount = id.isSociopath() ? 2 : 1;
-			subsAmount -= amount;
-			clients.remove(id);
-			removed = true;
+		boolean announce;
+		
+		synchronized (this) {
+			boolean couldRun = canRun(); //see if the game could run before the removal
+			boolean removed = false;
+			
+			ClientIdentity id = identify(clientInfo);
+			
+			if (id != null) {
+				id.getHandler().kill();
+				int amount = id.isSociopath() ? 2 : 1;
+				subsAmount -= amount;
+				clients.remove(clientInfo);
+				updateParticipants();
+				removed = true;
+			}
+			
+			//only the first client to leave a running game ends it
+			announce = couldRun && removed && running;
+			if (announce) pauseGame(true);
 		}
 		
-		//terminate game - send all a message
-		if (couldRun && removed && running)
-			announceDisconnection(leavingClientProt);
+		//terminate game - send all a message (without holding the game)
+		if (announce) notifyOthers(clientInfo, createDeathNote());
 	}
 	
 	/**
@@ -112,30 +135,58 @@ public class OpenGame
 	 * @param clientInfo - The network information of the client
 	 * @return the ClientIdentity object of the client.
 	 */
-	private ClientIdentity identify(NetworkInformation clientInfo) {
-		for (ClientIdentity id : clients)
-			if (id.getProtocol().getRemoteNetworkInformation().equals(clientInfo)) return id;
+	private synchronized ClientIdentity identify(NetworkInformation clientInfo) {
+		return clients.get(clientInfo);
+	}
+	
+	/**
+	 * Make the table's next requests wait for a piece of work that's done in the background
+	 * (like a computer move that's being computed).
+	 * 
+	 * @param work - The work to wait for
+	 */
+	public synchronized void addWork(CompletableFuture<?> work) {
+		pendingWork = CompletableFuture.allOf(pendingWork, work);
+	}
+	
+	/**
+	 * Run a task only after all of the table's background work is done.
+	 * Deferred tasks run in the order they were deferred.
+	 * 
+	 * @param task - The task to run
+	 * @param executor - The executor to run the task on if it's deferred
+	 * @return true if the task has been deferred, or false if the table is idle and the task should run right away.
+	 */
+	public synchronized boolean deferIfBusy(Runnable task, Executor executor) {
+		if (pendingWork.isDone()) return false;
+		
+		pendingWork = pendingWork.handleAsync((result, ex) -> {
+			task.run();
+			return null;
+		}, executor);
 		
-		return null;
+		return true;
 	}
 	
 	/**
 	 * @return the boardGame's handler.
 	 */
-	public BoardGameHandler getBoardHandler() { return handler; }
+	public synchronized BoardGameHandler getBoardHandler() { return handler; }
 	
 	/**
-	 * @param prot - The client's protocol
+	 * @param clientInfo - The client's network information
 	 * @return the client's private request handler.
 	 */
-	public HandleRequest getRequestHandler(Protocol prot) {
-		return identify(prot.getRemoteNetworkInformation()).getHandler(); 
+	public ClientHandler getRequestHandler(NetworkInformation clientInfo) {
+		return identify(clientInfo).getHandler(); 
 	}
 	
 	/**
-	 * @return all of the game's client protocols.
+	 * @return a snapshot of all of the game's clients.
 	 */
-	public Set<ClientIdentity> getClients() { return clients; }
+	public synchronized Collection<ClientIdentity> getClients() {
+		return new ArrayList<ClientIdentity>(clients.values());
+	}
 	
 	/**
 	 * Get a set of reserved clients, that should come and join the game.
@@ -172,17 +223,63 @@ public class OpenGame
 	/**
 	 * Notify all (remaining) clients, about the disconnection of one client from the game.
 	 * 
-	 * @param protocol - The protocol of the disconnected client
+	 * @param clientInfo - The network information of the disconnected client
+	 */
+	public void announceDisconnection(NetworkInformation clientInfo) {
+		synchronized (this) {
+			if (!running) return;
+			pauseGame(true);
+		}
+		
+		notifyOthers(clientInfo, createDeathNote());
+	}
+	
+	/**
+	 * Check if the game reached an end right after a move.
+	 * If it did, notify every participant about his own game state.
+	 * Only the first check after the end notifies anyone.
+	 * 
+	 * @return true if the game has just ended.
+	 * @throws IOException when one of the clients is unreachable.
 	 */
-	public void announceDisconnection(Protocol protocol) {
-		if (!running) return;
+	public boolean concludeIfOver() throws IOException {
+		Map<ClientIdentity, GameState> states = new LinkedHashMap<ClientIdentity, GameState>();
+		
+		synchronized (this) {
+			if (!running) return false;
+			
+			for (ClientIdentity id : clients.values()) {
+				GameState state = handler.getGameState(game.getPlayerSign(), id.getHandler().getPlayerIndex());
+				if (state == GameState.IN_PROGRESS) return false;
+				states.put(id, state);
+			}
+			
+			pauseGame(true);
+		}
 		
-		JSON deathNote = new JSON("end_game");
-		deathNote.put("game", game.name());
-		deathNote.put("state", GameState.PARTNER_DISCONNECTED.name());
-		notifyOthers(protocol, deathNote);
+		//notify the clients (without holding the game)
+		for (ClientIdentity id : states.keySet())
+			id.getHandler().send(createEndNote(states.get(id)));
 		
-		pauseGame(true);
+		return true;
+	}
+	
+	/**
+	 * @return a message that tells the clients their partner has disconnected.
+	 */
+	private JSON createDeathNote() {
+		return createEndNote(GameState.PARTNER_DISCONNECTED);
+	}
+	
+	/**
+	 * @param state - The state the game ended with
+	 * @return a message that tells a client the game has ended.
+	 */
+	private JSON createEndNote(GameState state) {
+		JSON endNote = new JSON("end_game");
+		endNote.put("game", game.name());
+		endNote.put("state", state.name());
+		return endNote;
 	}
 	
 	/**
@@ -191,29 +288,53 @@ public class OpenGame
 	 * @param exclude - The one participant to exclude
 	 * @param msg - The message to send all other participants
 	 */
-	public void notifyOthers(Protocol exclude, JSON msg) {
-		Set<Protocol> alternativeSet = getAllProtocols();
-		alternativeSet.remove(exclude);
-		controller.notifySet(alternativeSet, msg);
+	public void notifyOthers(NetworkInformation exclude, JSON msg) {
+		InetSocketAddress excludedAddress = (exclude != null) ? ChannelTransport.toSocketAddress(exclude) : null;
+		controller.broadcast(participants, excludedAddress, msg);
 	}
 	
-	public Set<Protocol> getAllProtocols() {
-		Set<Protocol> set = new HashSet<Protocol>();
+	/**
+	 * Rebuild the addresses of the participants after a client has joined or left.
+	 * The array is replaced rather than changed, so broadcasts can read it without holding the game.
+	 */
+	private void updateParticipants() {
+		InetSocketAddress[] addresses = new InetSocketAddress[clients.size()];
+		int index = 0;
 		
-		for (ClientIdentity id : clients)
-			set.add(id.getProtocol());
+		for (NetworkInformation clientInfo : clients.keySet())
+			addresses[index++] = ChannelTransport.toSocketAddress(clientInfo);
 		
-		return set;
+		participants = addresses;
+	}
+	
+	/**
+	 * @return the network information of all of the game's clients.
+	 */
+	public synchronized Set<NetworkInformation> getAllClientsInfo() {
+		return new HashSet<NetworkInformation>(clients.keySet());
 	}
 	
 	/**
 	 * Renew the game.
 	 */
-	public void reissue() {
+	public synchronized void reissue() {
+		//clear the board in place if the game allows it
+		if (handler.reset(RNG.unstableCondition(50))) return;
+		
+		BoardGameHandler oldHandler = handler;
 		handler = new BoardGameHandler(game, chooseRandomGameAlgo());
 		
-		for (ClientIdentity id : clients)
+		for (ClientIdentity id : clients.values())
 			id.getHandler().reissueBoardHandler(handler);
+		
+		oldHandler.release();
+	}
+	
+	/**
+	 * Return the game's models for other games to use, once all of its clients are gone.
+	 */
+	public synchronized void release() {
+		if (clients.isEmpty()) handler.release();
 	}
 	
 	/**
@@ -228,15 +349,33 @@ public class OpenGame
 	 * 
 	 * @param flag - True to pause
 	 */
-	public void pauseGame(boolean flag) { running = !flag; }
+	public void pauseGame(boolean flag) {
+		running = !flag;
+		touch();
+	}
+	
+	/**
+	 * @return true if the game is running (started, and not paused or over).
+	 */
+	public boolean isRunning() { return running; }
+	
+	/**
+	 * Mark that something has just happened in the game.
+	 */
+	public void touch() { lastActivity = System.currentTimeMillis(); }
+	
+	/**
+	 * @return the last time (in milliseconds) anything happened in the game.
+	 */
+	public long getLastActivity() { return lastActivity; }
 	
 	@Override
-	public String toString() {
+	public synchronized String toString() {
 		String str = "[Open game serial number: " + ID + ", "
 				   + "Name: " + game.name() + ", "
 				   + "Clients:\n";
 		
-		for (ClientIdentity id : clients)
+		for (ClientIdentity id : clients.values())
 			str = str.concat(id + "\n");
 		
 		return str.substring(0, str.length() - 1) + "]";
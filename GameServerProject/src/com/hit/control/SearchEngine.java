@@ -0,0 +1,316 @@
+package com.hit.control;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+class SearchEngine
+{
+	private static final int WIN_SCORE = 10000;
+	private static final int INFINITY = WIN_SCORE + 1;
+	private static final int NO_MOVE = -1;
+	private static final long ZOBRIST_SEED = 0x5EED;
+	
+	//only nodes this deep look at the clock, so the leaves don't pay for it
+	private static final int CLOCK_DEPTH = 2;
+	
+	private SearchRules rules;
+	private TranspositionTable table;
+	private long[] zobrist;
+	private long sideKey;
+	private int maxDepth;
+	private long budget;
+	
+	/*
+	 * Every ply of a search lists its moves in a buffer of its own.
+	 * A thread always finishes one search before it starts another,
+	 * so the buffers are kept per thread and never allocated during a search.
+	 */
+	private ThreadLocal<int[][]> plyMoves;
+	
+	/**
+	 * @param rules - The rules of the searched game
+	 * @param maxDepth - The deepest search to make (the game's difficulty)
+	 * @param budget - The time (in milliseconds) a search may take, when it isn't given a deadline of its own
+	 * @param tableSizePower - The transposition table holds 2^tableSizePower entries, shared by all searches
+	 */
+	public SearchEngine(SearchRules rules, int maxDepth, long budget, int tableSizePower) {
+		this.rules = rules;
+		this.maxDepth = maxDepth;
+		this.budget = TimeUnit.MILLISECONDS.toNanos(budget);
+		this.table = new TranspositionTable(tableSizePower);
+		this.plyMoves = ThreadLocal.withInitial(() -> new int[maxDepth + 1][rules.getCellsAmount()]);
+		
+		//a random key for every side on every cell
+		SplittableRandom random = new SplittableRandom(ZOBRIST_SEED);
+		this.zobrist = new long[rules.getCellsAmount() * 2];
+		for (int i = 0; i < zobrist.length; i++) zobrist[i] = random.nextLong();
+		this.sideKey = random.nextLong();
+	}
+	
+	/**
+	 * Find the best move for the engine's side, within the engine's budget.
+	 * 
+	 * @param cells - The board (EMPTY, ENGINE or OPPONENT in every cell), which is only read and never kept
+	 * @return the cell the engine should take, or NO_MOVE if there's none.
+	 */
+	public int findMove(byte[] cells) {
+		return findMove(cells, System.nanoTime() + budget);
+	}
+	
+	/**
+	 * Find the best move for the engine's side.
+	 * Deeper searches are made one after the other, each starting from the best move of the one before,
+	 * until the maximum depth is reached, the deadline passes, or the game is decided.
+	 * A search that's still running at the deadline is stopped and dropped,
+	 * and the best move of the deepest finished search is taken.
+	 * 
+	 * @param cells - The board (EMPTY, ENGINE or OPPONENT in every cell), which is only read and never kept
+	 * @param deadline - The time (of System.nanoTime()) at which the search stops
+	 * @return the cell the engine should take, or NO_MOVE if there's none.
+	 */
+	public int findMove(byte[] cells, long deadline) {
+		long hash = hash(cells);
+		int[] moves = plyMoves.get()[0];
+		int amount = rules.generateMoves(cells, moves);
+		if (amount == 0) return NO_MOVE;
+		
+		int bestMove = moves[0];
+		int depthLimit = Math.min(maxDepth, amount);
+		
+		for (int depth = 1; depth <= depthLimit; depth++) {
+			putFirst(moves, amount, bestMove);
+			SearchResult result = searchRoot(cells, hash, depth, moves, amount, deadline);
+			if (result.isStopped()) break;
+			bestMove = result.move;
+			
+			if (Math.abs(result.score) >= WIN_SCORE - depthLimit || System.nanoTime() > deadline) break;
+		}
+		
+		return bestMove;
+	}
+	
+	/**
+	 * @return the time (in nanoseconds) a search may take, when it isn't given a deadline of its own.
+	 */
+	public long getBudget() { return budget; }
+	
+	/**
+	 * Search every root move to a certain depth.
+	 * The first move is searched alone, to find a good bound,
+	 * and the rest are then searched in parallel, sharing the best bound found so far.
+	 * 
+	 * @param cells - The board
+	 * @param hash - The hash of the board
+	 * @param depth - The depth to search to
+	 * @param moves - The root moves, the most promising first
+	 * @param amount - The amount of root moves
+	 * @param deadline - The time (of System.nanoTime()) at which the search stops
+	 * @return the best move and its score, unless the search has been stopped.
+	 */
+	private SearchResult searchRoot(byte[] cells, long hash, int depth, int[] moves, int amount, long deadline) {
+		SearchResult result = new SearchResult(deadline);
+		result.move = moves[0];
+		result.score = -searchChild(result, cells.clone(), hash, depth, moves[0], -INFINITY, INFINITY);
+		if (result.isStopped()) return result;
+		
+		List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(amount - 1);
+		for (int i = 1; i < amount; i++) {
+			int move = moves[i];
+			
+			tasks.add(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+				
+				@Override
+				protected void compute() {
+					if (result.isStopped()) return;
+					
+					int alpha = result.getScore();
+					int score = -searchChild(result, cells.clone(), hash, depth, move, -INFINITY, -alpha);
+					if (!result.isStopped()) result.offer(move, score);
+				}
+			});
+		}
+		
+		ForkJoinTask.invokeAll(tasks);
+		if (result.isStopped()) return result;
+		
+		table.store(hash, depth, result.score, TranspositionTable.EXACT, result.move);
+		return result;
+	}
+	
+	/**
+	 * Make a root move for the engine, and search the board that follows from the opponent's side.
+	 */
+	private int searchChild(SearchResult search, byte[] cells, long hash, int depth, int move, int alpha, int beta) {
+		cells[move] = SearchRules.ENGINE;
+		long childHash = hash ^ keyOf(move, SearchRules.ENGINE) ^ sideKey;
+		return negamax(search, plyMoves.get(), cells, childHash, depth - 1, 1, alpha, beta, SearchRules.OPPONENT, move);
+	}
+	
+	/**
+	 * @param search - The search this board is a part of (which tells when to stop)
+	 * @param buffers - The move buffers of the searching thread, one for every ply
+	 * @param cells - The board
+	 * @param hash - The hash of the board
+	 * @param depth - The remaining depth to search
+	 * @param ply - The distance from the root
+	 * @param alpha - The score the side to move is already guaranteed
+	 * @param beta - The score the other side is already guaranteed (negated)
+	 * @param side - The side to move
+	 * @param lastMove - The move the other side has just made
+	 * @return the score of the board for the side to move (meaningless if the search has been stopped).
+	 */
+	private int negamax(SearchResult search, int[][] buffers, byte[] cells, long hash, int depth, int ply, int alpha, int beta, byte side, int lastMove) {
+		//the other side has just won
+		if (rules.isWinningMove(cells, lastMove)) return -(WIN_SCORE - ply);
+		
+		int[] moves = buffers[ply];
+		int amount = rules.generateMoves(cells, moves);
+		if (amount == 0) return 0;
+		if (depth == 0) return rules.evaluate(cells, side);
+		if (depth >= CLOCK_DEPTH && search.isOverdue()) return 0;
+		
+		int originalAlpha = alpha;
+		int bestMove = NO_MOVE;
+		long entry = table.probe(hash);
+		
+		if (entry != TranspositionTable.MISSING) {
+			bestMove = TranspositionTable.moveOf(entry);
+			
+			if (TranspositionTable.depthOf(entry) >= depth) {
+				int score = fromTable(TranspositionTable.scoreOf(entry), ply);
+				
+				switch (TranspositionTable.boundOf(entry)) {
+					case TranspositionTable.EXACT: return score;
+					case TranspositionTable.LOWER_BOUND: alpha = Math.max(alpha, score); break;
+					case TranspositionTable.UPPER_BOUND: beta = Math.min(beta, score); break;
+				}
+				
+				if (alpha >= beta) return score;
+			}
+		}
+		
+		putFirst(moves, amount, bestMove);
+		byte otherSide = (side == SearchRules.ENGINE) ? SearchRules.OPPONENT : SearchRules.ENGINE;
+		int bestScore = -INFINITY;
+		
+		for (int i = 0; i < amount && alpha < beta && !search.isStopped(); i++) {
+			int move = moves[i];
+			cells[move] = side;
+			long childHash = hash ^ keyOf(move, side) ^ sideKey;
+			int score = -negamax(search, buffers, cells, childHash, depth - 1, ply + 1, -beta, -alpha, otherSide, move);
+			cells[move] = SearchRules.EMPTY;
+			
+			if (score > bestScore) {
+				bestScore = score;
+				bestMove = move;
+			}
+			
+			alpha = Math.max(alpha, score);
+		}
+		
+		//a stopped search leaves nothing in the table, since its scores are incomplete
+		if (search.isStopped()) return 0;
+		
+		int bound;
+		if (bestScore <= originalAlpha) bound = TranspositionTable.UPPER_BOUND;
+		else if (bestScore >= beta) bound = TranspositionTable.LOWER_BOUND;
+		else bound = TranspositionTable.EXACT;
+		
+		table.store(hash, depth, toTable(bestScore, ply), bound, bestMove);
+		return bestScore;
+	}
+	
+	/**
+	 * @param cells - The board
+	 * @return the Zobrist hash of the board, with the engine to move.
+	 */
+	private long hash(byte[] cells) {
+		long hash = 0;
+		
+		for (int i = 0; i < cells.length; i++)
+			if (cells[i] != SearchRules.EMPTY) hash ^= keyOf(i, cells[i]);
+		
+		return hash;
+	}
+	
+	/**
+	 * @return the Zobrist key of a side on a cell.
+	 */
+	private long keyOf(int cell, byte side) {
+		return zobrist[cell * 2 + side - 1];
+	}
+	
+	/**
+	 * Move a move to the front of a list of moves, if it's there.
+	 */
+	private static void putFirst(int[] moves, int amount, int move) {
+		for (int i = 1; i < amount; i++) {
+			if (moves[i] == move) {
+				moves[i] = moves[0];
+				moves[0] = move;
+				return;
+			}
+		}
+	}
+	
+	/*
+	 * Winning scores depend on the distance from the root,
+	 * so they're stored relative to the board itself and restored relative to the current root.
+	 */
+	private static int toTable(int score, int ply) {
+		if (score > WIN_SCORE - INFINITY / 2) return score + ply;
+		else if (score < -(WIN_SCORE - INFINITY / 2)) return score - ply;
+		else return score;
+	}
+	
+	private static int fromTable(int score, int ply) {
+		if (score > WIN_SCORE - INFINITY / 2) return score - ply;
+		else if (score < -(WIN_SCORE - INFINITY / 2)) return score + ply;
+		else return score;
+	}
+	
+	private static class SearchResult
+	{
+		private int move, score;
+		private long deadline;
+		private volatile boolean stopped;
+		
+		/**
+		 * @param deadline - The time (of System.nanoTime()) at which the search stops
+		 */
+		public SearchResult(long deadline) {
+			this.deadline = deadline;
+		}
+		
+		public synchronized int getScore() { return score; }
+		
+		/**
+		 * Stop the search if its deadline has passed.
+		 * 
+		 * @return true if the search has been stopped.
+		 */
+		public boolean isOverdue() {
+			if (!stopped && System.nanoTime() > deadline) stopped = true;
+			return stopped;
+		}
+		
+		/**
+		 * @return true if the search has been stopped, and its result should be dropped.
+		 */
+		public boolean isStopped() { return stopped; }
+		
+		/**
+		 * Keep a move if it's better than the best one so far.
+		 */
+		public synchronized void offer(int move, int score) {
+			if (score > this.score) {
+				this.score = score;
+				this.move = move;
+			}
+		}
+	}
+}
\ No newline at end of file
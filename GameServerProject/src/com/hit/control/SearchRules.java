@@ -0,0 +1,42 @@
+package com.hit.control;
+
+interface SearchRules
+{
+	/*
+	 * The cells of a searched board hold one of these values.
+	 * The side that moves next is always either ENGINE or OPPONENT.
+	 */
+	byte EMPTY = 0;
+	byte ENGINE = 1;
+	byte OPPONENT = 2;
+	
+	/**
+	 * @return the amount of cells on the board.
+	 */
+	int getCellsAmount();
+	
+	/**
+	 * List the moves that the side to move can make.
+	 * 
+	 * @param cells - The board
+	 * @param moves - An array to write the moves to (at least as long as the amount of cells)
+	 * @return the amount of moves that have been written.
+	 */
+	int generateMoves(byte[] cells, int[] moves);
+	
+	/**
+	 * @param cells - The board, right after a move
+	 * @param move - The cell that has just been taken
+	 * @return true if the move has won the game for the side that made it.
+	 */
+	boolean isWinningMove(byte[] cells, int move);
+	
+	/**
+	 * Estimate how good a board is, without searching any deeper.
+	 * 
+	 * @param cells - The board
+	 * @param side - The side to estimate the board for
+	 * @return a score that's positive if the board favours the side, and negative otherwise.
+	 */
+	int evaluate(byte[] cells, byte side);
+}
\ No newline at end of file
@@ -0,0 +1,100 @@
+package com.hit.control;
+import game_algo.GameBoard.GameMove;
+import game_algo.IGameAlgo;
+
+/*
+ * A smart model that makes its computer moves with the server's search engine.
+ * The wrapped model stays the owner of the board - every search starts from the board the model holds,
+ * and the chosen move is checked against that board and written into it, like a move of the model itself.
+ * This is only right for models that keep all of their state in the board (reusable games),
+ * and a move the board doesn't allow is left to the model.
+ */
+class SearchingModel implements IGameAlgo
+{
+	private static final int NO_MOVE = -1;
+	
+	private Game game;
+	private IGameAlgo model;
+	private char emptySign;
+	
+	//the board as the search engine sees it, rewritten before every search instead of allocated
+	private byte[] cells;
+	
+	/**
+	 * @param game - The game the model plays
+	 * @param model - The smart model to wrap
+	 * @param emptySign - The sign of an empty cell
+	 */
+	public SearchingModel(Game game, IGameAlgo model, char emptySign) {
+		this.game = game;
+		this.model = model;
+		this.emptySign = emptySign;
+		this.cells = new byte[game.getBoardSize().width * game.getBoardSize().height];
+	}
+	
+	/**
+	 * @param game - The game the model plays
+	 * @param model - A smart model of the game
+	 * @param emptySign - The sign of an empty cell
+	 * @return a searching model that wraps the model, or the model itself if the game has no search engine.
+	 */
+	public static IGameAlgo wrap(Game game, IGameAlgo model, char emptySign) {
+		return (game.getSearchEngine() != null) ? new SearchingModel(game, model, emptySign) : model;
+	}
+	
+	@Override
+	public void calcComputerMove() {
+		calcComputerMove(System.nanoTime() + game.getSearchEngine().getBudget());
+	}
+	
+	/**
+	 * Make the computer's move, with a search that stops at a deadline.
+	 * 
+	 * @param deadline - The time (of System.nanoTime()) at which the search stops
+	 */
+	public void calcComputerMove(long deadline) {
+		char[][] board = model.getBoardState();
+		int cols = board[0].length;
+		int spot = findSpot(board, deadline);
+		
+		if (spot != NO_MOVE && board[spot / cols][spot % cols] == emptySign)
+			board[spot / cols][spot % cols] = game.getComputerSign();
+		else
+			model.calcComputerMove();
+	}
+	
+	/**
+	 * Find the computer's move in the book, or search for it if the book doesn't know it.
+	 * 
+	 * @param board - The model's board
+	 * @param deadline - The time (of System.nanoTime()) at which the search stops
+	 * @return the flat index of the cell to take, or NO_MOVE if there's none.
+	 */
+	private int findSpot(char[][] board, long deadline) {
+		char compSign = game.getComputerSign();
+		int cols = board[0].length;
+		
+		for (int i = 0; i < cells.length; i++) {
+			char sign = board[i / cols][i % cols];
+			if (sign == emptySign) cells[i] = SearchRules.EMPTY;
+			else if (sign == compSign) cells[i] = SearchRules.ENGINE;
+			else cells[i] = SearchRules.OPPONENT;
+		}
+		
+		MoveBook book = game.getMoveBook();
+		int spot = (book != null) ? book.lookup(cells) : NO_MOVE;
+		return (spot != NO_MOVE) ? spot : game.getSearchEngine().findMove(cells, deadline);
+	}
+	
+	@Override
+	public boolean updatePlayerMove(GameMove move) { return model.updatePlayerMove(move); }
+	
+	@Override
+	public char[][] getBoardState() { return model.getBoardState(); }
+	
+	@Override
+	public GameState getGameState(GameMove move) { return model.getGameState(move); }
+	
+	@Override
+	public void merge(IGameAlgo other) { model.merge(other); }
+}
\ No newline at end of file
@@ -0,0 +1,84 @@
+package com.hit.control;
+
+class TranspositionTable
+{
+	public static final int EXACT = 0;
+	public static final int LOWER_BOUND = 1;
+	public static final int UPPER_BOUND = 2;
+	public static final long MISSING = 0;
+	
+	/*
+	 * Every entry is packed into one long:
+	 * score (16 bits), depth (8 bits), bound type (2 bits), best move (16 bits) and a presence bit.
+	 * The key is stored XORed with the entry, so an entry that's torn by concurrent writers
+	 * simply fails to match, and the table needs no locks.
+	 */
+	private static final long PRESENT = 1L << 62;
+	
+	private long[] keys, entries;
+	private int mask;
+	
+	/**
+	 * @param sizePower - The table holds 2^sizePower entries
+	 */
+	public TranspositionTable(int sizePower) {
+		this.keys = new long[1 << sizePower];
+		this.entries = new long[1 << sizePower];
+		this.mask = (1 << sizePower) - 1;
+	}
+	
+	/**
+	 * @param hash - The hash of the board
+	 * @return the entry of the board, or MISSING if it has none.
+	 */
+	public long probe(long hash) {
+		int index = (int) hash & mask;
+		long entry = entries[index];
+		return (entry != MISSING && (keys[index] ^ entry) == hash) ? entry : MISSING;
+	}
+	
+	/**
+	 * Store the result of a search.
+	 * An entry of another board is always replaced, and an entry of the same board only by a deeper search.
+	 * 
+	 * @param hash - The hash of the board
+	 * @param depth - The depth the board has been searched to
+	 * @param score - The score of the board
+	 * @param bound - EXACT, LOWER_BOUND or UPPER_BOUND
+	 * @param move - The best move that has been found
+	 */
+	public void store(long hash, int depth, int score, int bound, int move) {
+		int index = (int) hash & mask;
+		long oldEntry = entries[index];
+		if (oldEntry != MISSING && (keys[index] ^ oldEntry) == hash && depthOf(oldEntry) > depth) return;
+		
+		long entry = PRESENT
+				   | ((long) (move + 1) & 0xFFFF) << 26
+				   | ((long) bound & 0x3) << 24
+				   | ((long) depth & 0xFF) << 16
+				   | ((long) (score + 0x8000) & 0xFFFF);
+		
+		entries[index] = entry;
+		keys[index] = hash ^ entry;
+	}
+	
+	/**
+	 * @return the score of an entry.
+	 */
+	public static int scoreOf(long entry) { return (int) (entry & 0xFFFF) - 0x8000; }
+	
+	/**
+	 * @return the depth of an entry.
+	 */
+	public static int depthOf(long entry) { return (int) (entry >>> 16) & 0xFF; }
+	
+	/**
+	 * @return the bound type of an entry.
+	 */
+	public static int boundOf(long entry) { return (int) (entry >>> 24) & 0x3; }
+	
+	/**
+	 * @return the best move of an entry, or -1 if it has none.
+	 */
+	public static int moveOf(long entry) { return (int) ((entry >>> 26) & 0xFFFF) - 1; }
+}
\ No newline at end of file
@@ -0,0 +1,245 @@
+package com.hit.server;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javaNK.util.debugging.Logger;
+
+public class AdmissionController implements Runnable
+{
+	public static final int UNBOUNDED_HANDLERS = Integer.MAX_VALUE;
+	
+	private static final long ADJUST_INTERVAL = 1000;
+	private static final int MIN_LIMIT = 4;
+	private static final int MAX_LIMIT = 1 << 16;
+	private static final int ADDITIVE_STEP = 4;
+	private static final double GROWTH_RATIO = 0.05;
+	private static final double DECREASE_FACTOR = 0.75;
+	private static final double BUSY_RATIO = 0.9;
+	private static final long TARGET_MOVE_LATENCY = 50000;
+	private static final double MAX_LATE_COMPUTER_MOVES = 0.05;
+	private static final double MIN_HEAP_HEADROOM = 0.15;
+	private static final int BASE_RETRY_AFTER = 1000;
+	private static final int MAX_RETRY_AFTER = 30000;
+	private static final int BUSY_RETRY_AFTER = 250;
+	
+	private Server server;
+	private MemoryPoolMXBean tenuredPool;
+	private volatile int handlersCeiling;
+	private volatile int limit;
+	private volatile String pressure;
+	private long lastMoves, lastMovesLatency, lastComputed, lastLateComputed;
+	private LongAdder increases, decreases;
+	private ScheduledExecutorService adjuster;
+	
+	/*
+	 * The limit of seated clients follows the server's load.
+	 * While the moves are answered fast enough and there's room for more memory,
+	 * a full server raises its limit by a small part of itself every second (and at least by a few clients),
+	 * so a large server reaches its capacity in minutes rather than hours.
+	 * As soon as one of them runs short, the limit drops by a quarter, so the clients that already play
+	 * keep getting fast answers, and the ones that are turned away are told when to try again.
+	 * The handlers are a fixed cost rather than a load, so they only cap the limit - it never rises above
+	 * the amount of handlers the server can afford, and reaching that amount doesn't lower it.
+	 * 
+	 * A player's move should be answered within a few milliseconds, but the computer's moves are given
+	 * a budget of their own (searches take up to hundreds of milliseconds), so they're judged against it -
+	 * the server is short of compute when too many of them miss their budget.
+	 * 
+	 * Memory is judged by what's left after the last collection of the tenured heap,
+	 * since the heap that's in use between collections is mostly garbage that hasn't been collected yet.
+	 */
+	
+	/**
+	 * @param server - The server whose load is watched
+	 * @param initialLimit - The amount of clients to admit before the load is known
+	 * @param handlersCeiling - The maximum amount of handlers the server can afford,
+	 * 							or UNBOUNDED_HANDLERS if handlers cost no thread of their own
+	 */
+	public AdmissionController(Server server, int initialLimit, int handlersCeiling) {
+		this.server = server;
+		this.handlersCeiling = handlersCeiling;
+		this.tenuredPool = findTenuredPool();
+		this.limit = clamp(initialLimit);
+		this.pressure = "none";
+		this.increases = new LongAdder();
+		this.decreases = new LongAdder();
+	}
+	
+	/**
+	 * Start adjusting the limit once every interval.
+	 */
+	public void start() {
+		adjuster = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "Admission Controller");
+			thread.setDaemon(true);
+			return thread;
+		});
+		
+		adjuster.scheduleAtFixedRate(this, ADJUST_INTERVAL, ADJUST_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * @param handlersCeiling - The maximum amount of handlers the server can afford
+	 */
+	public void setHandlersCeiling(int handlersCeiling) {
+		this.handlersCeiling = handlersCeiling;
+		limit = clamp(limit);
+	}
+	
+	/**
+	 * @param clients - The amount of clients that are seated (or being seated) right now
+	 * @return true if one more client may be seated.
+	 */
+	public boolean allows(int clients) { return clients < limit; }
+	
+	/**
+	 * Tell a client that has been turned away when to try again.
+	 * The further the server is above its limit, the longer the client should wait.
+	 * A little randomness keeps the clients that were turned away together from coming back together.
+	 * 
+	 * @param clients - The amount of clients that are seated (or being seated) right now
+	 * @return the time (in milliseconds) the client should wait before asking again.
+	 */
+	public int retryAfter(int clients) {
+		int currentLimit = limit;
+		double excess = Math.max(0, clients - currentLimit + 1) / (double) currentLimit;
+		double delay = BASE_RETRY_AFTER * (1 + excess * 4) + ThreadLocalRandom.current().nextInt(BASE_RETRY_AFTER / 2 + 1);
+		return (int) Math.min(MAX_RETRY_AFTER, delay);
+	}
+	
+	/**
+	 * @param args - The arguments the server was launched with
+	 * @return the maximum amount of handlers that the arguments allow, or 0 to keep the server's own ceiling.
+	 */
+	public static int handlersCeilingFromArgs(String[] args) {
+		for (String arg : args)
+			if (arg.startsWith("--max-handlers=")) return Integer.parseInt(arg.substring("--max-handlers=".length()));
+		
+		return 0;
+	}
+	
+	/**
+	 * @return the time (in milliseconds) a client should wait when too many clients are being admitted at once.
+	 */
+	public int busyRetryAfter() {
+		return BUSY_RETRY_AFTER + ThreadLocalRandom.current().nextInt(BUSY_RETRY_AFTER + 1);
+	}
+	
+	@Override
+	public void run() {
+		String newPressure = measurePressure();
+		int oldLimit = limit, newLimit = oldLimit;
+		
+		if (newPressure != null) {
+			newLimit = clamp((int) (oldLimit * DECREASE_FACTOR));
+			if (newLimit < oldLimit) decreases.increment();
+		}
+		else if (server.getOccupancy() >= oldLimit * BUSY_RATIO) {
+			newLimit = clamp(oldLimit + Math.max(ADDITIVE_STEP, (int) (oldLimit * GROWTH_RATIO)));
+			if (newLimit > oldLimit) increases.increment();
+		}
+		
+		limit = newLimit;
+		pressure = (newPressure != null) ? newPressure : "none";
+		
+		if (newLimit < oldLimit)
+			Logger.print("The admission limit has dropped to " + newLimit + " clients (" + newPressure + ").");
+	}
+	
+	/**
+	 * Check every resource the clients depend on.
+	 * 
+	 * @return the resource that runs short, or null if there's room for more clients.
+	 */
+	private String measurePressure() {
+		//average latency of the moves since the last check
+		LatencyHistogram moves = ServerMetrics.caseLatency("player_move");
+		long movesAmount = moves.getCount(), movesLatency = moves.getTotal();
+		long moveLatency = averageSince(movesAmount - lastMoves, movesLatency - lastMovesLatency);
+		lastMoves = movesAmount;
+		lastMovesLatency = movesLatency;
+		
+		//computer moves that missed their budget since the last check (made by the random model, or late)
+		ComputePool computePool = server.getComputePool();
+		long computed = computePool.getComputedAmount();
+		long lateComputed = computePool.getFallbacksAmount() + computePool.getOverrunsAmount();
+		long computedSince = computed - lastComputed, lateSince = lateComputed - lastLateComputed;
+		lastComputed = computed;
+		lastLateComputed = lateComputed;
+		
+		if (moveLatency > TARGET_MOVE_LATENCY) return "move latency";
+		if (lateSince > computedSince * MAX_LATE_COMPUTER_MOVES) return "computer moves";
+		if (measureHeapHeadroom() < MIN_HEAP_HEADROOM) return "heap";
+		
+		return null;
+	}
+	
+	/**
+	 * @return the part of the tenured heap that was free after its last collection,
+	 * 		   or 1 if it hasn't been collected yet.
+	 */
+	private double measureHeapHeadroom() {
+		MemoryUsage usage = (tenuredPool != null) ? tenuredPool.getCollectionUsage() : null;
+		if (usage == null || usage.getUsed() == 0) return 1;
+		
+		long max = (usage.getMax() > 0) ? usage.getMax() : Runtime.getRuntime().maxMemory();
+		return 1 - (double) usage.getUsed() / max;
+	}
+	
+	/**
+	 * Find the heap pool that keeps the long living objects.
+	 * The young pools are emptied by every collection, so they can't tell how much memory is really in use,
+	 * and they're the only heap pools that don't support a usage threshold.
+	 * Collectors with a single heap pool (like ZGC) return that pool.
+	 * 
+	 * @return the tenured heap pool, or null if the collector doesn't report one.
+	 */
+	private static MemoryPoolMXBean findTenuredPool() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+			if (pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported()
+				&& pool.isCollectionUsageThresholdSupported()) return pool;
+		
+		return null;
+	}
+	
+	private long averageSince(long amount, long total) {
+		return (amount > 0) ? total / amount : 0;
+	}
+	
+	private int clamp(int value) {
+		return Math.max(MIN_LIMIT, Math.min(Math.min(MAX_LIMIT, handlersCeiling), value));
+	}
+	
+	/**
+	 * Start over from a new limit (when it's configured manually).
+	 * 
+	 * @param newLimit - The new limit of seated clients
+	 */
+	public void setLimit(int newLimit) { limit = clamp(newLimit); }
+	
+	/**
+	 * @return the amount of clients that may be seated right now.
+	 */
+	public int getLimit() { return limit; }
+	
+	/**
+	 * @return the resource that ran short in the last check, or "none".
+	 */
+	public String getPressure() { return pressure; }
+	
+	/**
+	 * @return the amount of times the limit has been raised.
+	 */
+	public long getIncreasesAmount() { return increases.sum(); }
+	
+	/**
+	 * @return the amount of times the limit has been lowered.
+	 */
+	public long getDecreasesAmount() { return decreases.sum(); }
+}
\ No newline at end of file
@@ -0,0 +1,285 @@
+package com.hit.server;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import com.hit.control.ClientIdentity;
+import com.hit.control.Game;
+import com.hit.control.OpenGame;
+import com.hit.services.GameServerController;
+import javaNK.util.communication.JSON;
+import javaNK.util.communication.NetworkInformation;
+import javaNK.util.communication.Protocol;
+import javaNK.util.debugging.Logger;
+
+public class AdmissionPipeline
+{
+	public static final String HANDSHAKE = "handshake";
+	
+	private static final int PROVISION_THREADS = 4;
+	private static final int NOTIFY_THREADS = 2;
+	private static final int QUEUE_CAPACITY = 1024;
+	private static final long HANDSHAKE_TIMEOUT = 100;
+	
+	private Server server;
+	private GameServerController controller;
+	private ChannelTransport transport;
+	private ThreadPoolExecutor provisioner, notifier;
+	private Map<Game, ThreadPoolExecutor> matchmakers;
+	private Map<NetworkInformation, CompletableFuture<Void>> handshakes;
+	private AtomicInteger inFlight;
+	private LongAdder admitted;
+	
+	/**
+	 * @param server - The main Server object
+	 * @param controller - The controller that seats the clients
+	 * @param transport - A shared channel that serves all of the seated clients,
+	 * 					  or null to serve each client with a private protocol
+	 */
+	public AdmissionPipeline(Server server, GameServerController controller, ChannelTransport transport) {
+		this.server = server;
+		this.controller = controller;
+		this.transport = transport;
+		this.handshakes = new ConcurrentHashMap<NetworkInformation, CompletableFuture<Void>>();
+		this.inFlight = new AtomicInteger();
+		this.admitted = new LongAdder();
+		
+		/*
+		 * The provisioning stage rejects clients when it's full, so the server can turn them away at once.
+		 * Matchmaking runs on a single thread for each game type, which keeps every change to the tables
+		 * of that game in order, while the game types (locked separately by the game service) progress in parallel.
+		 * It never lends its work to another thread - a client that finds it full is turned away as well.
+		 * The notification stage pushes back on the stage before it instead, since the client is already seated.
+		 */
+		this.provisioner = createStage("Provisioning", PROVISION_THREADS, new ThreadPoolExecutor.AbortPolicy());
+		this.matchmakers = new HashMap<Game, ThreadPoolExecutor>();
+		
+		for (Game game : Game.values())
+			matchmakers.put(game, createStage("Matchmaking " + game.name(), 1, new ThreadPoolExecutor.AbortPolicy()));
+		
+		this.notifier = createStage("Notification", NOTIFY_THREADS, new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+	
+	/**
+	 * Create a bounded executor for one stage of the pipeline.
+	 * 
+	 * @param name - The name of the stage
+	 * @param threads - The amount of threads that work on the stage
+	 * @param rejectionPolicy - What to do when the stage's queue is full
+	 * @return a new executor for the stage.
+	 */
+	private ThreadPoolExecutor createStage(String name, int threads, RejectedExecutionHandler rejectionPolicy) {
+		AtomicInteger counter = new AtomicInteger();
+		
+		return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+									  new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY),
+									  task -> new Thread(task, name + " " + counter.incrementAndGet()),
+									  rejectionPolicy);
+	}
+	
+	/**
+	 * Start admitting a new client.
+	 * 
+	 * @param clientInfo - The network information of the client
+	 * @param game - The game the client wants to play
+	 * @param msg - The message the client sent to the server
+	 * @return true if the client has entered the pipeline, or false if it's too busy to take him.
+	 */
+	public boolean admit(NetworkInformation clientInfo, Game game, JSON msg) {
+		inFlight.incrementAndGet();
+		
+		try {
+			provisioner.execute(() -> provision(clientInfo, game, msg));
+			return true;
+		}
+		catch (RejectedExecutionException ex) {
+			inFlight.decrementAndGet();
+			return false;
+		}
+	}
+	
+	/**
+	 * Run a task in order with the seating of the clients of one game type.
+	 * Every task that changes which clients play a game should go through here.
+	 * When the matchmaking queue is full, the calling thread waits for room rather than running the task itself,
+	 * so this should never be called by a matchmaking task.
+	 * 
+	 * @param game - The game the task changes
+	 * @param task - The task to run
+	 */
+	public void execute(Game game, Runnable task) {
+		ThreadPoolExecutor matchmaker = matchmakers.get(game);
+		
+		try { matchmaker.execute(task); }
+		catch (RejectedExecutionException ex) {
+			try { matchmaker.getQueue().put(task); }
+			catch (InterruptedException ex1) {
+				Thread.currentThread().interrupt();
+				Logger.error("A matchmaking task has been dropped, because the server is shutting down.");
+			}
+		}
+	}
+	
+	/**
+	 * @param msg - The message a client has sent to join a game
+	 * @return true if the client promised to acknowledge his admission with a "client_ready" message.
+	 */
+	public static boolean isHandshakeRequested(JSON msg) {
+		try { return msg.getBoolean(HANDSHAKE); }
+		catch (Exception ex) { return false; } //older clients never acknowledge, and their games start at once
+	}
+	
+	/**
+	 * Mark that a client is ready to receive the start of his game.
+	 * 
+	 * @param clientInfo - The network information of the client
+	 */
+	public void acknowledge(NetworkInformation clientInfo) {
+		CompletableFuture<Void> handshake = handshakes.get(clientInfo);
+		if (handshake != null) handshake.complete(null);
+	}
+	
+	/**
+	 * Stop waiting for a client that left before his game started.
+	 * 
+	 * @param clientInfo - The network information of the client
+	 */
+	public void abandon(NetworkInformation clientInfo) {
+		handshakes.remove(clientInfo);
+	}
+	
+	/**
+	 * Provisioning stage - open a private protocol for the client (unless a shared channel serves him).
+	 */
+	private void provision(NetworkInformation clientInfo, Game game, JSON msg) {
+		Protocol newProt = null;
+		
+		try {
+			if (transport == null) {
+				newProt = new Protocol();
+				newProt.setRemoteNetworkInformation(clientInfo);
+			}
+		}
+		catch (IOException ex) {
+			Logger.error(msg, "Could not open a protocol for the client " + clientInfo + ".");
+			inFlight.decrementAndGet();
+			return;
+		}
+		
+		Protocol clientProt = newProt;
+		
+		try { matchmakers.get(game).execute(() -> seat(clientInfo, clientProt, game, msg)); }
+		catch (RejectedExecutionException ex) {
+			if (clientProt != null) clientProt.close();
+			inFlight.decrementAndGet();
+			server.turnAway(clientInfo, false);
+		}
+	}
+	
+	/**
+	 * Matchmaking stage - find a game for the client.
+	 */
+	private void seat(NetworkInformation clientInfo, Protocol clientProt, Game game, JSON msg) {
+		//check if client already playing
+		OpenGame openGame = controller.isAllowed(clientInfo, game) ? controller.addClient(clientInfo, clientProt, game, msg) : null;
+		
+		if (openGame == null) {
+			if (clientProt != null) clientProt.close();
+			inFlight.decrementAndGet();
+			return;
+		}
+		
+		/*
+		 * Only the client that fills the game starts it.
+		 * It's decided here, because this is the only stage that seats clients.
+		 */
+		boolean filled = openGame.canRun();
+		
+		//only clients that will acknowledge their admission are waited for
+		CompletableFuture<Void> handshake = isHandshakeRequested(msg) ? new CompletableFuture<Void>() : null;
+		if (handshake != null) handshakes.put(clientInfo, handshake);
+		
+		notifier.execute(() -> notifyAdmission(clientInfo, clientProt, openGame, handshake, filled, msg));
+	}
+	
+	/**
+	 * Notification stage - tell the client where to find his game, and start it when everyone is ready.
+	 */
+	private void notifyAdmission(NetworkInformation clientInfo, Protocol clientProt,
+								 OpenGame openGame, CompletableFuture<Void> handshake, boolean filled, JSON msg) {
+		
+		NetworkInformation targetInfo = (clientProt != null) ? clientProt.getLocalNetworkInformation()
+															 : transport.getLocalNetworkInformation();
+		
+		//binary frames and batches are only available through the shared channel
+		boolean binary = (transport != null) && BinaryCodec.isRequested(msg);
+		boolean batching = (transport != null) && Broadcaster.isBatchingRequested(msg);
+		
+		//notify client about his new target port
+		JSON message = new JSON("new_client");
+		message.put("available", true);
+		message.put("encoding", binary ? BinaryCodec.ENCODING : "json");
+		message.put(Broadcaster.BATCHING, batching);
+		message.put(HANDSHAKE, handshake != null);
+		message.merge(targetInfo.composeJSON());
+		
+		try { server.notify(clientInfo, message); }
+		catch (IOException ex) {
+			Logger.error(message, "Could not contact the client " + clientInfo + ".");
+		}
+		
+		//the reply itself is still text, since the client doesn't know the outcome yet
+		if (binary) transport.getBroadcaster().useBinary(ChannelTransport.toSocketAddress(clientInfo));
+		if (batching) transport.getBroadcaster().useBatches(ChannelTransport.toSocketAddress(clientInfo));
+		
+		//an acknowledgment can get lost on the way, so a client that promised one is considered ready after a short while
+		if (handshake != null) handshake.completeOnTimeout(null, HANDSHAKE_TIMEOUT, TimeUnit.MILLISECONDS);
+		
+		Logger.print("The client " + clientInfo + " has subscribed to\n" + openGame + ".");
+		server.seated(clientInfo, openGame);
+		inFlight.decrementAndGet();
+		admitted.increment();
+		
+		if (filled) startWhenReady(openGame);
+	}
+	
+	/**
+	 * Start a game as soon as all of its clients have acknowledged their admission.
+	 * 
+	 * @param openGame - The game to start
+	 */
+	public void startWhenReady(OpenGame openGame) {
+		CompletableFuture<Void> readiness = CompletableFuture.completedFuture(null);
+		
+		for (ClientIdentity id : openGame.getClients()) {
+			CompletableFuture<Void> handshake = handshakes.get(id.getClientInfo());
+			if (handshake != null) readiness = CompletableFuture.allOf(readiness, handshake);
+		}
+		
+		readiness.thenRunAsync(() -> {
+			for (ClientIdentity id : openGame.getClients())
+				handshakes.remove(id.getClientInfo());
+			
+			try { if (openGame.canRun()) server.notifyStart(openGame); }
+			catch (IOException ex) { Logger.error(ex); }
+		}, notifier);
+	}
+	
+	/**
+	 * @return the amount of clients that have been accepted, but are not seated yet.
+	 */
+	public int getInFlightAmount() { return inFlight.get(); }
+	
+	/**
+	 * @return the amount of clients that have been seated in games.
+	 */
+	public long getAdmittedAmount() { return admitted.sum(); }
+}
\ No newline at end of file
@@ -0,0 +1,240 @@
+package com.hit.server;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import com.hit.control.Game;
+import game_algo.IGameAlgo.GameState;
+import javaNK.util.communication.JSON;
+
+public class BinaryCodec implements MessageCodec
+{
+	public static final String ENCODING = "binary";
+	
+	/*
+	 * Messages without a fixed layout are sent as JSON text,
+	 * and every JSON text starts with this byte, so it's never used as an opcode.
+	 */
+	private static final byte TEXT_FRAME = '{';
+	
+	/*
+	 * A batch holds several frames of any kind, each one preceded by its length (2 bytes).
+	 */
+	private static final byte BATCH_FRAME = 0x7E;
+	
+	private static enum Layout
+	{
+		EMPTY(0), //no payload
+		CELL(2), //row, column
+		SIGN(1), //sign
+		FLAG(1), //true or false
+		OUTCOME(2); //game, state
+		
+		private int size;
+		
+		private Layout(int size) { this.size = size; }
+	}
+	
+	private static enum Frame
+	{
+		//client to server
+		PLAYER_SIGN(0x01, "player_sign", Layout.EMPTY, null, true),
+		PLAYER2_SIGN(0x02, "player2_sign", Layout.EMPTY, null, true),
+		PLAYER_MOVE(0x03, "player_move", Layout.CELL, null, true),
+		COMPUTER_MOVE(0x04, "computer_move", Layout.EMPTY, null, true),
+		PLACE_PLAYER(0x05, "place_player", Layout.CELL, null, true),
+		PLACE_COMPUTER(0x06, "place_computer", Layout.CELL, null, true),
+		PLAYER_RANDOM(0x07, "player_random", Layout.EMPTY, null, true),
+		COMPUTER_RANDOM(0x08, "computer_random", Layout.EMPTY, null, true),
+		IS_OVER(0x09, "is_over", Layout.EMPTY, null, true),
+		FORCE_LOSS(0x0A, "force_loss", Layout.EMPTY, null, true),
+		
+		//server to client
+		PLAYER_SIGN_REPLY(0x41, "player_sign", Layout.SIGN, "sign", false),
+		PLAYER2_SIGN_REPLY(0x42, "player2_sign", Layout.SIGN, "sign", false),
+		PLAYER_MOVE_REPLY(0x43, "player_move", Layout.FLAG, "success", false),
+		PLAYER2_MOVE(0x44, "player2_move", Layout.CELL, null, false),
+		PLAYER_RANDOM_REPLY(0x45, "player_random", Layout.CELL, null, false),
+		COMPUTER_RANDOM_REPLY(0x46, "computer_random", Layout.CELL, null, false),
+		IS_OVER_REPLY(0x47, "is_over", Layout.FLAG, "over", false),
+		END_GAME(0x48, "end_game", Layout.OUTCOME, null, false);
+		
+		private byte opcode;
+		private String type, field;
+		private Layout layout;
+		private boolean request;
+		
+		/**
+		 * @param opcode - The first byte of the frame
+		 * @param type - The type of the message
+		 * @param layout - The layout of the payload that follows the opcode
+		 * @param field - The name of the message's single field (for SIGN and FLAG layouts)
+		 * @param request - True if the client sends the message, or false if the server does
+		 */
+		private Frame(int opcode, String type, Layout layout, String field, boolean request) {
+			this.opcode = (byte) opcode;
+			this.type = type;
+			this.layout = layout;
+			this.field = field;
+			this.request = request;
+		}
+	}
+	
+	private MessageCodec textCodec;
+	private Map<String, Frame> outbound;
+	private Frame[] inbound;
+	
+	/**
+	 * @param serverSide - True to encode the server's messages and decode the client's,
+	 * 					   or false for the other way around
+	 */
+	public BinaryCodec(boolean serverSide) {
+		this.textCodec = new TextCodec();
+		this.outbound = new HashMap<String, Frame>();
+		this.inbound = new Frame[Byte.MAX_VALUE + 1];
+		
+		for (Frame frame : Frame.values()) {
+			if (frame.request != serverSide) outbound.put(frame.type, frame);
+			else inbound[frame.opcode] = frame;
+		}
+	}
+	
+	/**
+	 * @param msg - The message a client has sent to join a game
+	 * @return true if the client asked for binary frames.
+	 */
+	public static boolean isRequested(JSON msg) {
+		try { return ENCODING.equals(msg.getString("encoding")); }
+		catch (Exception ex) { return false; } //older clients don't mention an encoding at all
+	}
+	
+	@Override
+	public void encode(JSON msg, ByteBuffer buffer) throws IOException {
+		Frame frame = outbound.get(msg.getType());
+		if (frame == null) {
+			textCodec.encode(msg, buffer);
+			return;
+		}
+		
+		try {
+			buffer.put(frame.opcode);
+			
+			switch (frame.layout) {
+				case EMPTY: break;
+				case CELL:
+					buffer.put((byte) msg.getInt("row"));
+					buffer.put((byte) msg.getInt("column"));
+					break;
+				case SIGN: buffer.put((byte) msg.getString(frame.field).charAt(0)); break;
+				case FLAG: buffer.put((byte) (msg.getBoolean(frame.field) ? 1 : 0)); break;
+				case OUTCOME:
+					buffer.put((byte) Game.valueOf(msg.getString("game")).ordinal());
+					buffer.put((byte) GameState.valueOf(msg.getString("state")).ordinal());
+					break;
+			}
+		}
+		catch (BufferOverflowException ex) { throw new IOException("The message " + msg + " is too long."); }
+	}
+	
+	@Override
+	public ByteBuffer encode(JSON msg) throws IOException {
+		Frame frame = outbound.get(msg.getType());
+		if (frame == null) return textCodec.encode(msg);
+		
+		ByteBuffer buffer = ByteBuffer.allocate(1 + frame.layout.size);
+		encode(msg, buffer);
+		buffer.flip();
+		return buffer;
+	}
+	
+	@Override
+	public ByteBuffer encodeBatch(List<JSON> msgs) throws IOException {
+		List<ByteBuffer> frames = new ArrayList<ByteBuffer>(msgs.size());
+		int size = 1;
+		
+		for (JSON msg : msgs) {
+			ByteBuffer frame = encode(msg);
+			frames.add(frame);
+			size += 2 + frame.remaining();
+		}
+		
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		buffer.put(BATCH_FRAME);
+		
+		for (ByteBuffer frame : frames) {
+			buffer.putShort((short) frame.remaining());
+			buffer.put(frame);
+		}
+		
+		buffer.flip();
+		return buffer;
+	}
+	
+	@Override
+	public JSON decode(ByteBuffer buffer) throws IOException {
+		if (!buffer.hasRemaining()) throw new IOException("The frame is empty.");
+		
+		byte opcode = buffer.get(buffer.position());
+		if (opcode == TEXT_FRAME) return textCodec.decode(buffer);
+		else if (opcode == BATCH_FRAME) return decodeBatch(buffer);
+		
+		Frame frame = (opcode >= 0) ? inbound[opcode] : null;
+		if (frame == null) throw new IOException("Unknown opcode " + opcode + ".");
+		
+		try {
+			buffer.get(); //skip the opcode
+			JSON msg = new JSON(frame.type);
+			
+			switch (frame.layout) {
+				case EMPTY: break;
+				case CELL:
+					msg.put("row", (int) buffer.get());
+					msg.put("column", (int) buffer.get());
+					break;
+				case SIGN: msg.put(frame.field, "" + (char) buffer.get()); break;
+				case FLAG: msg.put(frame.field, buffer.get() != 0); break;
+				case OUTCOME:
+					msg.put("game", Game.values()[buffer.get()].name());
+					msg.put("state", GameState.values()[buffer.get()].name());
+					break;
+			}
+			
+			return msg;
+		}
+		catch (BufferUnderflowException | ArrayIndexOutOfBoundsException ex) {
+			throw new IOException("The frame of " + frame.type + " is malformed.");
+		}
+	}
+	
+	/**
+	 * @param buffer - A buffer that contains a batch frame
+	 * @return a "batch" message that holds all of the decoded frames under "messages".
+	 * @throws IOException when one of the frames is not valid.
+	 */
+	private JSON decodeBatch(ByteBuffer buffer) throws IOException {
+		List<JSON> msgs = new ArrayList<JSON>();
+		int limit = buffer.limit();
+		buffer.get(); //skip the opcode
+		
+		try {
+			while (buffer.hasRemaining()) {
+				int length = buffer.getShort() & 0xFFFF;
+				int end = buffer.position() + length;
+				if (end > limit) throw new BufferUnderflowException();
+				
+				buffer.limit(end);
+				msgs.add(decode(buffer));
+				buffer.limit(limit).position(end);
+			}
+		}
+		catch (BufferUnderflowException ex) { throw new IOException("The batch frame is malformed."); }
+		
+		JSON batch = new JSON("batch");
+		batch.put("messages", msgs.toArray(new JSON[msgs.size()]));
+		return batch;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,279 @@
+package com.hit.server;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javaNK.util.communication.JSON;
+import javaNK.util.communication.NetworkInformation;
+import javaNK.util.communication.Protocol;
+
+public class Broadcaster
+{
+	public static final String BATCHING = "batching";
+	
+	private DatagramChannel channel;
+	private Protocol protocol;
+	private MessageCodec codec, binaryCodec;
+	private Set<InetSocketAddress> binaryClients, batchingClients;
+	private Map<InetSocketAddress, NetworkInformation> protocolTargets;
+	private ThreadLocal<Map<InetSocketAddress, List<JSON>>> heldMessages;
+	private LongAdder broadcasts, fanOut, datagrams, sentBytes;
+	
+	/**
+	 * @param channel - The channel to send the messages through (may be shared with other senders)
+	 * @param codec - The codec that turns messages into bytes for clients that didn't ask for binary frames
+	 */
+	public Broadcaster(DatagramChannel channel, MessageCodec codec) {
+		this.channel = channel;
+		this.codec = codec;
+		this.binaryCodec = new BinaryCodec(true);
+		this.binaryClients = ConcurrentHashMap.newKeySet();
+		this.batchingClients = ConcurrentHashMap.newKeySet();
+		this.protocolTargets = new ConcurrentHashMap<InetSocketAddress, NetworkInformation>();
+		this.heldMessages = new ThreadLocal<Map<InetSocketAddress, List<JSON>>>();
+		this.broadcasts = new LongAdder();
+		this.fanOut = new LongAdder();
+		this.datagrams = new LongAdder();
+		this.sentBytes = new LongAdder();
+	}
+	
+	/**
+	 * Send the messages through a protocol, so they come from the protocol's own port.
+	 * A protocol only sends whole messages and encodes them itself, so every message is sent as text
+	 * in a datagram of its own, and its bytes are not counted.
+	 * 
+	 * @param protocol - The protocol to send the messages through (may be shared with other senders)
+	 */
+	public Broadcaster(Protocol protocol) {
+		this(null, new TextCodec());
+		this.protocol = protocol;
+	}
+	
+	/**
+	 * @param msg - The message a client has sent to join a game
+	 * @return true if the client asked to receive several messages in one "batch" message.
+	 */
+	public static boolean isBatchingRequested(JSON msg) {
+		try { return msg.getBoolean(BATCHING); }
+		catch (Exception ex) { return false; } //older clients only understand one message per datagram
+	}
+	
+	/**
+	 * Send binary frames to a client from now on.
+	 * 
+	 * @param target - The address of the client
+	 */
+	public void useBinary(InetSocketAddress target) {
+		if (channel != null) binaryClients.add(target);
+	}
+	
+	/**
+	 * Send several messages to a client in one "batch" message from now on, when they're held together.
+	 * Batches are only sent through the shared channel - in protocol mode, a client's replies come from
+	 * his own protocol and the server's messages from the server's protocol, so they can never share a datagram.
+	 * 
+	 * @param target - The address of the client
+	 */
+	public void useBatches(InetSocketAddress target) {
+		if (channel != null) batchingClients.add(target);
+	}
+	
+	/**
+	 * Keep the network information of a seated client,
+	 * so sending him messages through a protocol doesn't create it again every time.
+	 * 
+	 * @param clientInfo - The network information of the client
+	 */
+	public void track(NetworkInformation clientInfo) {
+		if (protocol != null) protocolTargets.put(ChannelTransport.toSocketAddress(clientInfo), clientInfo);
+	}
+	
+	/**
+	 * Forget the encoding a client has chosen (and how he's reached), after he's gone.
+	 * 
+	 * @param target - The address of the client
+	 */
+	public void forget(InetSocketAddress target) {
+		binaryClients.remove(target);
+		batchingClients.remove(target);
+		protocolTargets.remove(target);
+	}
+	
+	/**
+	 * Hold every message that the current thread sends from now on, until flush() is called.
+	 * Holding is used while serving one request, so the messages it produces before it returns
+	 * reach each client that asked for batches in a single datagram.
+	 * The messages are grouped by the thread that holds them, not by client - messages to the same client
+	 * from other threads (another player's request, a computed move) are not held, and go out on their own.
+	 */
+	public void hold() {
+		if (heldMessages.get() == null) heldMessages.set(new LinkedHashMap<InetSocketAddress, List<JSON>>());
+	}
+	
+	/**
+	 * Send everything the current thread has held since hold() was called.
+	 * Clients that asked for batches get one datagram, and the others get one datagram for each message.
+	 * 
+	 * @throws IOException when at least one of the clients is unreachable.
+	 */
+	public void flush() throws IOException {
+		Map<InetSocketAddress, List<JSON>> held = heldMessages.get();
+		if (held == null) return;
+		
+		heldMessages.remove();
+		IOException failure = null;
+		
+		for (InetSocketAddress target : held.keySet()) {
+			List<JSON> msgs = held.get(target);
+			MessageCodec targetCodec = codecOf(target);
+			
+			try {
+				if (channel == null) for (JSON msg : msgs) post(msg, target);
+				else if (msgs.size() > 1 && batchingClients.contains(target)) transmit(targetCodec.encodeBatch(msgs), target);
+				else for (JSON msg : msgs) transmit(targetCodec.encode(msg), target);
+			}
+			catch (IOException ex) { failure = ex; }
+		}
+		
+		if (failure != null) throw failure;
+	}
+	
+	/**
+	 * Send one datagram through the channel, and count it.
+	 * 
+	 * @param frame - The bytes to send
+	 * @param target - The address of the client
+	 * @throws IOException when the client is unreachable.
+	 */
+	private void transmit(ByteBuffer frame, InetSocketAddress target) throws IOException {
+		sentBytes.add(channel.send(frame, target));
+		datagrams.increment();
+	}
+	
+	/**
+	 * Send one message through the protocol (which encodes it by itself), and count it.
+	 * 
+	 * @param msg - The message to send
+	 * @param target - The address of the client
+	 * @throws IOException when the client is unreachable.
+	 */
+	private void post(JSON msg, InetSocketAddress target) throws IOException {
+		NetworkInformation targetInfo = protocolTargets.get(target);
+		if (targetInfo == null) targetInfo = new NetworkInformation(target.getPort(), target.getAddress());
+		
+		protocol.send(msg, targetInfo);
+		datagrams.increment();
+	}
+	
+	/**
+	 * Keep a message for a client if the current thread is holding its messages.
+	 * 
+	 * @param msg - The message to keep
+	 * @param target - The address of the client
+	 * @return true if the message has been kept, or false if it should be sent right away.
+	 */
+	private boolean keep(JSON msg, InetSocketAddress target) {
+		Map<InetSocketAddress, List<JSON>> held = heldMessages.get();
+		if (held == null) return false;
+		
+		held.computeIfAbsent(target, key -> new ArrayList<JSON>()).add(msg);
+		return true;
+	}
+	
+	/**
+	 * @param target - The address of a client
+	 * @return the codec that encodes messages for the client.
+	 */
+	private MessageCodec codecOf(InetSocketAddress target) {
+		return binaryClients.contains(target) ? binaryCodec : codec;
+	}
+	
+	/**
+	 * Send a message to one client.
+	 * 
+	 * @param msg - The message to send
+	 * @param target - The address of the client
+	 * @throws IOException when the client is unreachable.
+	 */
+	public void send(JSON msg, InetSocketAddress target) throws IOException {
+		if (keep(msg, target)) return;
+		
+		if (channel == null) post(msg, target);
+		else transmit(codecOf(target).encode(msg), target);
+	}
+	
+	/**
+	 * Send the same message to a group of clients.
+	 * The message is encoded once for each encoding, and the same bytes are sent to every client that uses it.
+	 * 
+	 * @param msg - The message to send
+	 * @param targets - The addresses of the clients
+	 * @param exclude - One address to skip, or null to send to all of them
+	 * @throws IOException when at least one of the clients is unreachable.
+	 */
+	public void broadcast(JSON msg, InetSocketAddress[] targets, InetSocketAddress exclude) throws IOException {
+		ByteBuffer textFrame = null, binaryFrame = null;
+		IOException failure = null;
+		broadcasts.increment();
+		
+		for (InetSocketAddress target : targets) {
+			if (target.equals(exclude)) continue;
+			
+			fanOut.increment();
+			if (keep(msg, target)) continue;
+			
+			//keep sending to the others even if one of them fails
+			if (channel == null) {
+				try { post(msg, target); }
+				catch (IOException ex) { failure = ex; }
+				continue;
+			}
+			
+			ByteBuffer frame;
+			if (binaryClients.contains(target)) {
+				if (binaryFrame == null) binaryFrame = binaryCodec.encode(msg);
+				frame = binaryFrame;
+			}
+			else {
+				if (textFrame == null) textFrame = codec.encode(msg);
+				frame = textFrame;
+			}
+			
+			//keep sending to the others even if one of them fails
+			try {
+				frame.rewind();
+				transmit(frame, target);
+			}
+			catch (IOException ex) { failure = ex; }
+		}
+		
+		if (failure != null) throw failure;
+	}
+	
+	/**
+	 * @return the amount of messages that have been sent to a group of clients.
+	 */
+	public long getBroadcastsAmount() { return broadcasts.sum(); }
+	
+	/**
+	 * @return the amount of clients that all of the group messages have been addressed to.
+	 */
+	public long getFanOutAmount() { return fanOut.sum(); }
+	
+	/**
+	 * @return the amount of datagrams that have been sent.
+	 */
+	public long getDatagramsAmount() { return datagrams.sum(); }
+	
+	/**
+	 * @return the amount of bytes that have been sent through the channel (a protocol's bytes are not counted).
+	 */
+	public long getSentBytesAmount() { return sentBytes.sum(); }
+}
\ No newline at end of file
@@ -0,0 +1,205 @@
+package com.hit.server;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javaNK.util.communication.JSON;
+import javaNK.util.communication.NetworkInformation;
+import javaNK.util.debugging.Logger;
+
+public class ChannelTransport implements Runnable
+{
+	private static final int PACKET_SIZE = 65507;
+	private static final int DISPATCH_THREADS = Runtime.getRuntime().availableProcessors();
+	
+	private NetworkInformation localInfo;
+	private DatagramChannel channel;
+	private Selector selector;
+	private MessageCodec codec;
+	private Broadcaster broadcaster;
+	private ByteBuffer inBuffer;
+	private Map<SocketAddress, ClientSession> sessions;
+	private ExecutorService[] dispatchers;
+	private volatile boolean running;
+	
+	/**
+	 * The channel listens on a port of its own, next to the server's port (which keeps admitting the clients).
+	 * A client doesn't need to know it in advance - the new_client reply carries the channel's network information,
+	 * just like it carries the port of a private protocol.
+	 * 
+	 * @param localInfo - The network information that all of the seated clients will talk to
+	 * @throws IOException when the port is unavailable.
+	 */
+	public ChannelTransport(NetworkInformation localInfo) throws IOException {
+		this.localInfo = localInfo;
+		this.codec = new BinaryCodec(true); //also reads the JSON text of older clients
+		this.inBuffer = ByteBuffer.allocateDirect(PACKET_SIZE);
+		this.sessions = new ConcurrentHashMap<SocketAddress, ClientSession>();
+		
+		/*
+		 * The selector thread only reads and decodes the packets, and the sessions serve them on the dispatchers.
+		 * Every client is always served by the same dispatcher, so his requests are still served in the order they arrived,
+		 * while a slow request only holds up the clients that share its dispatcher.
+		 */
+		this.dispatchers = new ExecutorService[DISPATCH_THREADS];
+		for (int i = 0; i < dispatchers.length; i++) {
+			String name = "Channel Dispatch " + (i + 1);
+			
+			dispatchers[i] = Executors.newSingleThreadExecutor(task -> {
+				Thread thread = new Thread(task, name);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		
+		this.channel = DatagramChannel.open();
+		channel.bind(new InetSocketAddress(localInfo.getPort()));
+		channel.configureBlocking(false);
+		
+		this.selector = Selector.open();
+		channel.register(selector, SelectionKey.OP_READ);
+		this.broadcaster = new Broadcaster(channel, new TextCodec());
+	}
+	
+	/**
+	 * Start receiving the seated clients' messages.
+	 */
+	public void start() {
+		running = true;
+		new Thread(this, "Channel Transport").start();
+	}
+	
+	@Override
+	public void run() {
+		while (running) {
+			try {
+				selector.select();
+				
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (key.isReadable()) receiveAll();
+				}
+			}
+			catch (ClosedSelectorException ex) { return; }
+			catch (IOException ex) { Logger.error(ex); }
+		}
+	}
+	
+	/**
+	 * Read every packet that's waiting on the channel,
+	 * and pass each one to the session of the client that sent it.
+	 * 
+	 * @throws IOException when the channel is unavailable.
+	 */
+	private void receiveAll() throws IOException {
+		SocketAddress source;
+		
+		while ((source = channel.receive(inBuffer)) != null) {
+			inBuffer.flip();
+			ClientSession session = sessions.get(source);
+			
+			/*
+			 * Ignore packets from clients that are not seated.
+			 * A bad packet is only logged, since this thread serves every table.
+			 */
+			if (session != null) {
+				try {
+					JSON msg = codec.decode(inBuffer);
+					dispatcherOf(source).execute(() -> session.dispatch(msg));
+				}
+				catch (IOException | RuntimeException ex) { Logger.error(ex); }
+			}
+			
+			inBuffer.clear();
+		}
+	}
+	
+	/**
+	 * @param source - The address of a client
+	 * @return the dispatcher that serves the client's requests.
+	 */
+	private ExecutorService dispatcherOf(SocketAddress source) {
+		return dispatchers[Math.floorMod(source.hashCode(), dispatchers.length)];
+	}
+	
+	/**
+	 * Send a message to a client.
+	 * 
+	 * @param msg - The message to send
+	 * @param target - The address of the client
+	 * @throws IOException when the client is unreachable.
+	 */
+	public void send(JSON msg, InetSocketAddress target) throws IOException {
+		broadcaster.send(msg, target);
+	}
+	
+	/**
+	 * Start passing a client's messages to his session.
+	 * 
+	 * @param session - The session of the client
+	 */
+	public void register(ClientSession session) {
+		sessions.put(session.getAddress(), session);
+	}
+	
+	/**
+	 * Stop passing a client's messages to his session.
+	 * 
+	 * @param session - The session of the client
+	 */
+	public void unregister(ClientSession session) {
+		sessions.remove(session.getAddress(), session);
+		broadcaster.forget(session.getAddress());
+	}
+	
+	/**
+	 * Stop receiving messages and release the channel.
+	 */
+	public void close() {
+		running = false;
+		selector.wakeup();
+		
+		for (ExecutorService dispatcher : dispatchers)
+			dispatcher.shutdown();
+		
+		try {
+			selector.close();
+			channel.close();
+		}
+		catch (IOException ex) { Logger.error(ex); }
+	}
+	
+	/**
+	 * @return the network information that the seated clients talk to.
+	 */
+	public NetworkInformation getLocalNetworkInformation() { return localInfo; }
+	
+	/**
+	 * @return a broadcaster that sends through the shared channel.
+	 */
+	public Broadcaster getBroadcaster() { return broadcaster; }
+	
+	/**
+	 * @return the amount of clients that are currently served.
+	 */
+	public int getSessionsAmount() { return sessions.size(); }
+	
+	/**
+	 * @param clientInfo - The network information of a client
+	 * @return the socket address of the client.
+	 */
+	public static InetSocketAddress toSocketAddress(NetworkInformation clientInfo) {
+		return new InetSocketAddress(clientInfo.getIP(), clientInfo.getPort());
+	}
+}
\ No newline at end of file
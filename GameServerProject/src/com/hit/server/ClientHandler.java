@@ -0,0 +1,74 @@
+package com.hit.server;
+import java.io.IOException;
+import com.hit.control.BoardGameHandler;
+import com.hit.control.Game;
+import com.hit.control.OpenGame;
+import javaNK.util.communication.JSON;
+import javaNK.util.communication.NetworkInformation;
+
+public interface ClientHandler
+{
+	/**
+	 * Start serving the client's requests.
+	 */
+	void start();
+	
+	/**
+	 * Stop serving the client and release his resources.
+	 */
+	void kill();
+	
+	/**
+	 * Send a message to the handled client.
+	 * 
+	 * @param msg - The message to send
+	 * @throws IOException when the client is unreachable.
+	 */
+	void send(JSON msg) throws IOException;
+	
+	/**
+	 * @return the network information of the handled client.
+	 */
+	NetworkInformation getClientInfo();
+	
+	/**
+	 * @return the open game the handled client is playing.
+	 */
+	OpenGame getOpenGame();
+	
+	/**
+	 * @return the board of the open game.
+	 */
+	BoardGameHandler getBoardHandler();
+	
+	/**
+	 * @return the client's index (unique for every client of the open game).
+	 */
+	int getPlayerIndex();
+	
+	/**
+	 * @return the type of the game this handler handles.
+	 */
+	Game getGame();
+	
+	/**
+	 * @return the pool that computes the computer's moves.
+	 */
+	ComputePool getComputePool();
+	
+	/**
+	 * Record that the client is alive.
+	 * 
+	 * @param interval - The interval (in milliseconds) the client promises to send heartbeats at,
+	 * 					 or 0 to keep the current one
+	 * @return the interval the client is monitored at, or 0 if he isn't monitored.
+	 */
+	int heartbeat(int interval);
+	
+	/**
+	 * Set a new BoardGameHandler object (must be set for all clients of the open game as a whole).
+	 *  
+	 * @param handler - The new BoardGameHandler object to work with
+	 */
+	void reissueBoardHandler(BoardGameHandler handler);
+}
\ No newline at end of file
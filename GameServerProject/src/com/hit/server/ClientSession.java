@@ -0,0 +1,137 @@
+package com.hit.server;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import com.hit.control.BoardGameHandler;
+import com.hit.control.Game;
+import com.hit.control.OpenGame;
+import javaNK.util.communication.JSON;
+import javaNK.util.communication.NetworkInformation;
+import javaNK.util.communication.ResponseCase;
+import javaNK.util.debugging.Logger;
+
+public class ClientSession implements ClientHandler
+{
+	private int playerIndex;
+	private Game game;
+	private OpenGame openGame;
+	private volatile BoardGameHandler boardHandler;
+	private ChannelTransport transport;
+	private ComputePool computePool;
+	private LivenessMonitor liveness;
+	private volatile int livenessSlot;
+	private NetworkInformation clientInfo;
+	private InetSocketAddress address;
+	private RequestCases requestCases;
+	private Map<String, ResponseCase> cases;
+	
+	/**
+	 * @param openGame - The game the client to handle is playing
+	 * @param transport - The transport that carries the client's messages
+	 * @param clientInfo - The network information of the client to handle
+	 * @param playerIndex - The index of the client (unique for every client of the open game)
+	 * @param computePool - The pool that computes the computer's moves
+	 * @param liveness - The monitor that watches the client's heartbeats
+	 */
+	public ClientSession(OpenGame openGame, ChannelTransport transport, NetworkInformation clientInfo,
+						 int playerIndex, ComputePool computePool, LivenessMonitor liveness) {
+		
+		this.openGame = openGame;
+		this.game = openGame.getGame();
+		this.playerIndex = playerIndex;
+		this.boardHandler = openGame.getBoardHandler();
+		this.transport = transport;
+		this.computePool = computePool;
+		this.liveness = liveness;
+		this.livenessSlot = LivenessMonitor.NO_SLOT;
+		this.clientInfo = clientInfo;
+		this.address = ChannelTransport.toSocketAddress(clientInfo);
+		this.requestCases = new RequestCases(this);
+		this.cases = new HashMap<String, ResponseCase>();
+		
+		for (ResponseCase responseCase : requestCases.getCases())
+			cases.put(responseCase.getCaseName(), responseCase);
+	}
+	
+	/**
+	 * Serve one message that the client has sent.
+	 * 
+	 * @param msg - The message to serve
+	 */
+	public void dispatch(JSON msg) {
+		ResponseCase responseCase = cases.get(msg.getType());
+		if (responseCase == null) return;
+		
+		//what the request produces right away reaches each client that asked for batches in one datagram
+		Broadcaster broadcaster = transport.getBroadcaster();
+		broadcaster.hold();
+		
+		try { responseCase.respond(msg); }
+		catch (Exception ex) {
+			Logger.error(msg, "Could not serve the client " + clientInfo + ".");
+		}
+		
+		try { broadcaster.flush(); }
+		catch (IOException ex) {
+			Logger.error(msg, "Could not answer the client " + clientInfo + ".");
+		}
+	}
+	
+	/**
+	 * Check if the game reached an end.
+	 * If it did, and the table hasn't been concluded yet, conclude it (notifying every participant once).
+	 * 
+	 * @return true if the game ended.
+	 * @throws IOException when the client is unreachable.
+	 */
+	public boolean attemptEndgame() throws IOException {
+		return requestCases.attemptEndgame();
+	}
+	
+	@Override
+	public void start() {
+		//a rematch starts the same handler again, and it keeps its slot
+		if (livenessSlot == LivenessMonitor.NO_SLOT) livenessSlot = liveness.register(this);
+		transport.register(this);
+	}
+	
+	@Override
+	public void kill() {
+		liveness.unregister(livenessSlot, this);
+		livenessSlot = LivenessMonitor.NO_SLOT;
+		transport.unregister(this);
+	}
+	
+	@Override
+	public void send(JSON msg) throws IOException { transport.send(msg, address); }
+	
+	/**
+	 * @return the socket address the client sends his messages from.
+	 */
+	public InetSocketAddress getAddress() { return address; }
+	
+	@Override
+	public NetworkInformation getClientInfo() { return clientInfo; }
+	
+	@Override
+	public OpenGame getOpenGame() { return openGame; }
+	
+	@Override
+	public BoardGameHandler getBoardHandler() { return boardHandler; }
+	
+	@Override
+	public int getPlayerIndex() { return playerIndex; }
+	
+	@Override
+	public Game getGame() { return game; }
+	
+	@Override
+	public ComputePool getComputePool() { return computePool; }
+	
+	@Override
+	public int heartbeat(int interval) { return liveness.beat(livenessSlot, interval); }
+	
+	@Override
+	public void reissueBoardHandler(BoardGameHandler handler) { boardHandler = handler; }
+}
\ No newline at end of file
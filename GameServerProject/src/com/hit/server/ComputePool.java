@@ -0,0 +1,139 @@
+package com.hit.server;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import com.hit.control.BoardGameHandler;
+import game_algo.GameBoard.GameMove;
+
+public class ComputePool
+{
+	private static final int QUEUE_LIMIT = 256;
+	private static final long MOVE_BUDGET = 200;
+	
+	private ForkJoinPool pool;
+	private long budget;
+	private AtomicInteger queued;
+	private LongAdder computed, fallbacks, overruns, totalLatency;
+	private AtomicLong maxLatency;
+	private LatencyHistogram searchTime;
+	
+	public ComputePool() {
+		this(Runtime.getRuntime().availableProcessors(), MOVE_BUDGET);
+	}
+	
+	/**
+	 * @param parallelism - The amount of threads that compute moves
+	 * @param budget - The time (in milliseconds) a move may take - a move that waits all of it is made by the random model,
+	 * 				   and a search that runs out of it stops with the best move it has found
+	 */
+	public ComputePool(int parallelism, long budget) {
+		this.pool = new ForkJoinPool(parallelism);
+		this.budget = TimeUnit.MILLISECONDS.toNanos(budget);
+		this.queued = new AtomicInteger();
+		this.computed = new LongAdder();
+		this.fallbacks = new LongAdder();
+		this.overruns = new LongAdder();
+		this.totalLatency = new LongAdder();
+		this.maxLatency = new AtomicLong();
+		this.searchTime = new LatencyHistogram();
+	}
+	
+	/**
+	 * Compute the computer's next move away from the caller's thread.
+	 * When the pool is too busy to make the move in time, the random model makes it instead.
+	 * 
+	 * @param board - The board to make the move on
+	 * @param compSign - The computer player's sign
+	 * @return the move that the computer will have made.
+	 */
+	public CompletableFuture<GameMove> computeMove(BoardGameHandler board, char compSign) {
+		long submitTime = System.nanoTime();
+		
+		//too many moves are waiting already - a random move is cheap enough to make right here
+		if (queued.incrementAndGet() > QUEUE_LIMIT) {
+			queued.decrementAndGet();
+			fallbacks.increment();
+			return CompletableFuture.completedFuture(board.randomCompMove());
+		}
+		
+		return CompletableFuture.supplyAsync(() -> {
+			queued.decrementAndGet();
+			boolean late = System.nanoTime() - submitTime > budget;
+			
+			GameMove move;
+			if (late) {
+				fallbacks.increment();
+				move = board.randomCompMove();
+			}
+			else {
+				long searchStart = System.nanoTime();
+				move = board.calcComputerMove(compSign, submitTime + budget);
+				searchTime.record(System.nanoTime() - searchStart);
+			}
+			
+			//the library's models can't be stopped at the deadline, so a slow one is only counted
+			long latency = System.nanoTime() - submitTime;
+			if (!late && latency > budget) overruns.increment();
+			record(latency);
+			return move;
+		}, pool);
+	}
+	
+	private void record(long latency) {
+		computed.increment();
+		totalLatency.add(latency);
+		maxLatency.accumulateAndGet(latency, Math::max);
+	}
+	
+	/**
+	 * @return an executor for short tasks that should follow the computed moves.
+	 */
+	public Executor getExecutor() { return pool; }
+	
+	/**
+	 * @return the amount of moves that are waiting for a thread.
+	 */
+	public int getQueueDepth() { return queued.get(); }
+	
+	/**
+	 * @return the amount of moves that have been computed in the pool.
+	 */
+	public long getComputedAmount() { return computed.sum(); }
+	
+	/**
+	 * @return the amount of moves that the random model made instead of the smart one.
+	 */
+	public long getFallbacksAmount() { return fallbacks.sum(); }
+	
+	/**
+	 * @return the amount of smart moves that took longer than the budget.
+	 */
+	public long getOverrunsAmount() { return overruns.sum(); }
+	
+	/**
+	 * @return the average time (in microseconds) from asking for a move until it's made.
+	 */
+	public long getAverageLatency() {
+		long amount = computed.sum();
+		return (amount > 0) ? TimeUnit.NANOSECONDS.toMicros(totalLatency.sum() / amount) : 0;
+	}
+	
+	/**
+	 * @return the sum of the times (in microseconds) from asking for a move until it's made.
+	 */
+	public long getTotalLatency() { return TimeUnit.NANOSECONDS.toMicros(totalLatency.sum()); }
+	
+	/**
+	 * @return the longest time (in microseconds) from asking for a move until it's made.
+	 */
+	public long getMaxLatency() { return TimeUnit.NANOSECONDS.toMicros(maxLatency.get()); }
+	
+	/**
+	 * @return the histogram of the time the smart moves took to compute (without waiting in the queue).
+	 */
+	public LatencyHistogram getSearchTime() { return searchTime; }
+}
\ No newline at end of file
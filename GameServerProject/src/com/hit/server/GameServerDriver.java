@@ -1,4 +1,7 @@
 package com.hit.server;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import com.hit.control.Game;
 import com.hit.util.CLI;
 import javaNK.util.communication.NetworkInformation;
 import javaNK.util.debugging.Logger;
@@ -16,9 +19,45 @@ public class GameServerDriver
 			serverNetwork = new NetworkInformation(ServerData.PORT, ServerData.IP_ADDRESS);
 			System.err.println("Network Information: " + serverNetwork);
 			
+			//build the game models before the first clients arrive
+			Game.warmUp();
+			
+			//serve all seated clients through one shared channel instead of a protocol each (on the port after the server's)
+			ChannelTransport transport = null;
+			if (Arrays.asList(args).contains("--channel-transport")) {
+				NetworkInformation channelNetwork = new NetworkInformation(ServerData.PORT + 1, ServerData.IP_ADDRESS);
+				transport = new ChannelTransport(channelNetwork);
+				System.err.println("Channel Information: " + channelNetwork);
+			}
+			
+			//run the server and the request handlers on virtual threads if asked to
+			ThreadMode threadMode = ThreadMode.fromArgs(args);
+			System.err.println("Thread Mode: " + threadMode);
+			
 			CLI cli = new CLI(System.in, System.out);
-			Server server = new Server(serverNetwork);
+			Server server = new Server(serverNetwork, transport, threadMode);
 			cli.addPropertyChangeListener(server);
+			
+			//a load test may seat more clients than the server's own ceiling of handlers allows
+			int handlersCeiling = AdmissionController.handlersCeilingFromArgs(args);
+			if (handlersCeiling > 0) server.getAdmissionControl().setHandlersCeiling(handlersCeiling);
+			
+			//the time idle tables are kept before they're reaped
+			server.getReaper().setTimeouts(TableReaper.timeoutFromArgs(args, "pending"),
+										   TableReaper.timeoutFromArgs(args, "running"),
+										   TableReaper.timeoutFromArgs(args, "ended"));
+			
+			//serve the metrics over HTTP, for a Prometheus server to scrape (on the loopback address by default)
+			int metricsPort = MetricsEndpoint.portFromArgs(args);
+			if (metricsPort > 0) {
+				MetricsEndpoint metricsEndpoint = new MetricsEndpoint(MetricsEndpoint.hostFromArgs(args), metricsPort, server.getMetrics());
+				metricsEndpoint.start();
+				
+				InetSocketAddress metricsAddress = metricsEndpoint.getAddress();
+				System.err.println("Metrics Endpoint: http://" + metricsAddress.getHostString() + ":"
+								 + metricsAddress.getPort() + MetricsEndpoint.PATH);
+			}
+			
 			new Thread(cli).start();
 		}
 		catch (Exception ex) { Logger.error(ex); }
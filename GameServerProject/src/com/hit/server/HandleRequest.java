@@ -3,246 +3,111 @@ import java.io.IOException;
 import com.hit.control.BoardGameHandler;
 import com.hit.control.Game;
 import com.hit.control.OpenGame;
-import game_algo.GameBoard.GameMove;
-import game_algo.IGameAlgo.GameState;
 import javaNK.util.communication.JSON;
+import javaNK.util.communication.NetworkInformation;
 import javaNK.util.communication.Protocol;
 import javaNK.util.communication.ResponseCase;
 import javaNK.util.communication.ResponseEngine;
 
-public class HandleRequest extends ResponseEngine
+public class HandleRequest extends ResponseEngine implements ClientHandler
 {
 	private int playerIndex;
+	private Server server;
 	private Game game;
 	private OpenGame openGame;
-	private BoardGameHandler boardHandler;
+	private volatile BoardGameHandler boardHandler;
+	private RequestCases requestCases;
+	private ThreadMode threadMode;
+	private ComputePool computePool;
+	private LivenessMonitor liveness;
+	private volatile int livenessSlot;
 	
 	/**
+	 * @param server - The main Server object
 	 * @param openGame - The game the client to handle is playing
 	 * @param prot - The protocol of the client to handle
 	 * @param playerIndex - The index of the client (unique for every client of the open game)
+	 * @param threadMode - The kind of thread that serves the client
+	 * @param computePool - The pool that computes the computer's moves
+	 * @param liveness - The monitor that watches the client's heartbeats
 	 * @throws IOException when the client's protocol is unavailable.
 	 */
-	public HandleRequest(OpenGame openGame, Protocol prot, int playerIndex) throws IOException {
+	public HandleRequest(Server server, OpenGame openGame, Protocol prot, int playerIndex,
+						 ThreadMode threadMode, ComputePool computePool, LivenessMonitor liveness) throws IOException {
+		
 		super(prot, true);
 		
+		this.server = server;
 		this.openGame = openGame;
 		this.game = openGame.getGame();
 		this.playerIndex = playerIndex;
 		this.boardHandler = openGame.getBoardHandler();
+		this.threadMode = threadMode;
+		this.computePool = computePool;
+		this.liveness = liveness;
+		this.livenessSlot = LivenessMonitor.NO_SLOT;
 	}
 	
 	/**
 	 * Check if the game reached an end.
-	 * If it did, notify the handled client about it.
+	 * If it did, and the table hasn't been concluded yet, conclude it (notifying every participant once).
 	 * 
 	 * @return true if the game ended.
 	 * @throws IOException when the client's protocol is unavailable.
 	 */
 	public boolean attemptEndgame() throws IOException {
-		GameState state = boardHandler.getGameState(game.getPlayerSign(), playerIndex);
-
-		//notify the client about the game state
-		if (state != GameState.IN_PROGRESS) {
-			endGame(state);
-			return true;
-		}
-		else return false;
+		return requestCases.attemptEndgame();
 	}
 	
-	private void endGame(GameState state) throws IOException {
-		openGame.pauseGame(true);
+	@Override
+	protected void initCases() {
+		requestCases = new RequestCases(this);
 		
-		JSON message = new JSON("end_game");
-		message.put("game", game.name());
-		message.put("state", state.name());
-		protocol.send(message);
+		for (ResponseCase responseCase : requestCases.getCases())
+			addCase(responseCase);
 	}
 	
 	@Override
-	protected void initCases() {
-		//get player's sign
-		addCase(new ResponseCase() {
-			@Override
-			public String getCaseName() { return "player_sign"; }
-
-			@Override
-			public void respond(JSON msg) throws Exception {
-				JSON message = new JSON("player_sign");
-				message.put("sign", "" + game.getPlayerSign());
-				protocol.send(message);
-			}
-		});
-		
-		//get player 2's sign
-		addCase(new ResponseCase() {
-			@Override
-			public String getCaseName() { return "player2_sign"; }
-
-			@Override
-			public void respond(JSON msg) throws Exception {
-				JSON message = new JSON("player2_sign");
-				message.put("sign", "" + game.getComputerSign());
-				protocol.send(message);
-			}
-		});
-		
-		//make a player move
-		addCase(new ResponseCase() {
-			@Override
-			public String getCaseName() { return "player_move"; }
-
-			@Override
-			public void respond(JSON msg) throws Exception {
-				int row = msg.getInt("row");
-				int col = msg.getInt("column");
-				GameMove move = new GameMove(row, col);
-				
-				//make the move + check if unsuccessful
-				boolean success = boardHandler.updatePlayerMove(move, game.getPlayerSign(), playerIndex);
-				
-				JSON message = new JSON("player_move");
-				message.put("success", success);
-				protocol.send(message);
-				
-				JSON p2message = new JSON("player2_move");
-				p2message.put("row", row);
-				p2message.put("column", col);
-				openGame.notifyOthers(protocol, p2message);
-			}
-		});
-		
-		//make a computer move
-		addCase(new ResponseCase() {
-			@Override
-			public String getCaseName() { return "computer_move"; }
-
-			@Override
-			public void respond(JSON msg) throws Exception {
-				GameMove compMove = boardHandler.calcComputerMove(game.getComputerSign());
-				
-				//notify player 1 which move was made
-				int row = compMove.getRow();
-				int col = compMove.getColumn();
-				
-				JSON message = new JSON("player2_move");
-				message.put("row", row);
-				message.put("column", col);
-				openGame.notifyAll(message);
-			}
-		});
-		
-		//place the player's sign on the board manually
-		addCase(new ResponseCase() {
-			@Override
-			public String getCaseName() { return "place_player"; }
-			
-			@Override
-			public void respond(JSON msg) throws Exception {
-				int row = msg.getInt("row");
-				int col = msg.getInt("column");
-				boardHandler.place(new GameMove(row, col), game.getPlayerSign());
-				
-				JSON message = new JSON("player2_move");
-				message.put("row", row);
-				message.put("column", col);
-				openGame.notifyOthers(protocol, message);
-			}
-		});
-		
-		//place the computer's sign on the board manually
-		addCase(new ResponseCase() {
-			@Override
-			public String getCaseName() { return "place_computer"; }
-
-			@Override
-			public void respond(JSON msg) throws Exception {
-				int row = msg.getInt("row");
-				int col = msg.getInt("column");
-				boardHandler.place(new GameMove(row, col), game.getComputerSign());
-			}
-		});
-		
-		//make a random player move
-		addCase(new ResponseCase() {
-			@Override
-			public String getCaseName() { return "player_random"; }
-
-			@Override
-			public void respond(JSON msg) throws Exception {
-				GameMove move = boardHandler.randomMove(game.getPlayerSign(), playerIndex);
-				JSON message = new JSON("player_random");
-				message.put("row", move.getRow());
-				message.put("column", move.getColumn());
-				protocol.send(message);
-				
-				message.setType("player2_move");
-				openGame.notifyOthers(protocol, message);
-			}
-		});
-		
-		//make a random computer move
-		addCase(new ResponseCase() {
-			@Override
-			public String getCaseName() { return "computer_random"; }
-			
-			@Override
-			public void respond(JSON msg) throws Exception {
-				GameMove move = boardHandler.randomCompMove();
-				JSON message = new JSON("computer_random");
-				message.put("row", move.getRow());
-				message.put("column", move.getColumn());
-				protocol.send(message);
-				
-				message.setType("player2_move");
-				openGame.notifyOthers(protocol, message);
-			}
-		});
-		
-		//check that the game is over
-		addCase(new ResponseCase() {
-			@Override
-			public String getCaseName() { return "is_over"; }
-
-			@Override
-			public void respond(JSON msg) throws Exception {
-				boolean over = attemptEndgame();
-
-				JSON message = new JSON("is_over");
-				message.put("over", over);
-				protocol.send(message);
-			}
-		});
-		
-		//force the player's loss in the game
-		addCase(new ResponseCase() {
-			@Override
-			public String getCaseName() { return "force_loss"; }
-			
-			@Override
-			public void respond(JSON msg) throws Exception {
-				endGame(GameState.PLAYER_LOST);
-			}
-		});
+	public void start() {
+		//a rematch starts the same handler again, and it keeps its slot
+		if (livenessSlot == LivenessMonitor.NO_SLOT) livenessSlot = liveness.register(this);
+		super.start();
 	}
 	
+	@Override
+	public void run() { threadMode.run(super::run, "Handle Request " + getClientInfo()); }
+	
 	@Override
 	protected void targetDied() {
+		NetworkInformation clientInfo = getClientInfo();
 		super.targetDied();
 		kill();
-		openGame.removeClient(protocol.getRemoteNetworkInformation());
-		protocol.close();
+		
+		//leave through the game service, so the client isn't left indexed (or counted) as playing
+		server.dismiss(clientInfo, game);
 	}
 	
 	@Override
 	public void kill() {
+		liveness.unregister(livenessSlot, this);
+		livenessSlot = LivenessMonitor.NO_SLOT;
 		super.kill();
 		protocol.close();
 	}
 	
-	/**
-	 * @return the client's index (unique for every client of the open game).
-	 */
+	@Override
+	public void send(JSON msg) throws IOException { protocol.send(msg); }
+	
+	@Override
+	public NetworkInformation getClientInfo() { return protocol.getRemoteNetworkInformation(); }
+	
+	@Override
+	public OpenGame getOpenGame() { return openGame; }
+	
+	@Override
+	public BoardGameHandler getBoardHandler() { return boardHandler; }
+	
+	@Override
 	public int getPlayerIndex() { return playerIndex; }
 	
 	/**
@@ -250,15 +115,15 @@ public class HandleRequest extends ResponseEngine
 	 */
 	public Protocol getProtocol() { return protocol; }
 	
-	/**
-	 * @return the type of the game this handler handles.
-	 */
+	@Override
 	public Game getGame() { return game; }
 	
-	/**
-	 * Set a new BoardGameHandler object (must be set for all clients of the open game as a whole).
-	 *  
-	 * @param handler - The new BoardGameHandler object to work with
-	 */
+	@Override
+	public ComputePool getComputePool() { return computePool; }
+	
+	@Override
+	public int heartbeat(int interval) { return liveness.beat(livenessSlot, interval); }
+	
+	@Override
 	public void reissueBoardHandler(BoardGameHandler handler) { boardHandler = handler; }
 }
\ No newline at end of file
@@ -0,0 +1,121 @@
+package com.hit.server;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyHistogram
+{
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_EXPONENT = 40;
+	
+	/*
+	 * Latencies (in microseconds) are counted in buckets that grow with the value,
+	 * every power of 2 split into 8 equal buckets - so any value is kept within 12.5% of itself.
+	 * Recording a value is a few atomic increments, and never allocates.
+	 */
+	private AtomicLongArray buckets;
+	private LongAdder count, failures, total;
+	private AtomicLong max;
+	
+	public LatencyHistogram() {
+		this.buckets = new AtomicLongArray((MAX_EXPONENT + 1) * SUB_BUCKETS);
+		this.count = new LongAdder();
+		this.failures = new LongAdder();
+		this.total = new LongAdder();
+		this.max = new AtomicLong();
+	}
+	
+	/**
+	 * Count one served request.
+	 * 
+	 * @param nanos - The time (in nanoseconds) it took to serve it
+	 */
+	public void record(long nanos) {
+		long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+		buckets.incrementAndGet(indexOf(micros));
+		count.increment();
+		total.add(micros);
+		
+		long currentMax;
+		while (micros > (currentMax = max.get()) && !max.compareAndSet(currentMax, micros));
+	}
+	
+	/**
+	 * Count one request that could not be served.
+	 */
+	public void recordFailure() { failures.increment(); }
+	
+	/**
+	 * @param micros - A latency (in microseconds)
+	 * @return the index of the bucket that counts it.
+	 */
+	private static int indexOf(long micros) {
+		if (micros < SUB_BUCKETS) return (int) Math.max(0, micros);
+		
+		int exponent = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS + 1;
+		if (exponent > MAX_EXPONENT) return (MAX_EXPONENT + 1) * SUB_BUCKETS - 1;
+		
+		int subBucket = (int) (micros >>> (exponent - 1)) - SUB_BUCKETS;
+		return exponent * SUB_BUCKETS + subBucket;
+	}
+	
+	/**
+	 * @param index - The index of a bucket
+	 * @return the highest latency (in microseconds) the bucket counts.
+	 */
+	private static long highestOf(int index) {
+		int exponent = index / SUB_BUCKETS, subBucket = index % SUB_BUCKETS;
+		if (exponent == 0) return subBucket;
+		
+		return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - 1)) - 1;
+	}
+	
+	/**
+	 * @param percentile - The percentile to find (between 0 and 100)
+	 * @return the latency (in microseconds) that the given percentage of the requests didn't exceed.
+	 */
+	public long getPercentile(double percentile) {
+		long amount = count.sum();
+		if (amount == 0) return 0;
+		
+		long rank = Math.max(1, (long) Math.ceil(amount * percentile / 100));
+		long seen = 0;
+		
+		for (int i = 0; i < buckets.length(); i++) {
+			seen += buckets.get(i);
+			if (seen >= rank) return Math.min(highestOf(i), max.get());
+		}
+		
+		return max.get();
+	}
+	
+	/**
+	 * @return the amount of served requests.
+	 */
+	public long getCount() { return count.sum(); }
+	
+	/**
+	 * @return the amount of requests that could not be served.
+	 */
+	public long getFailures() { return failures.sum(); }
+	
+	/**
+	 * @return the average latency (in microseconds).
+	 */
+	public long getAverage() {
+		long amount = count.sum();
+		return (amount > 0) ? total.sum() / amount : 0;
+	}
+	
+	/**
+	 * @return the sum of all latencies (in microseconds).
+	 */
+	public long getTotal() { return total.sum(); }
+	
+	/**
+	 * @return the highest latency (in microseconds) so far.
+	 */
+	public long getMax() { return max.get(); }
+}
\ No newline at end of file
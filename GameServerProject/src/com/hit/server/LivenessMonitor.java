@@ -0,0 +1,145 @@
+package com.hit.server;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import javaNK.util.debugging.Logger;
+
+public class LivenessMonitor implements Runnable
+{
+	public static final int NO_SLOT = -1;
+	public static final int DEFAULT_INTERVAL = 5000;
+	
+	private static final int CAPACITY = 1 << 16;
+	private static final int MIN_INTERVAL = 500;
+	private static final int MAX_INTERVAL = 60000;
+	private static final int MISSED_BEATS = 3;
+	private static final long SWEEP_INTERVAL = 500;
+	
+	private Server server;
+	
+	/*
+	 * Every monitored client owns one slot in these arrays, so a beat is a single write,
+	 * and one sweeper thread scans all of the clients without a timer for each.
+	 * An interval of 0 means the client hasn't asked to be monitored (yet).
+	 */
+	private AtomicReferenceArray<ClientHandler> handlers;
+	private AtomicLongArray lastSeen;
+	private AtomicIntegerArray intervals;
+	private int[] freeSlots;
+	private int freeAmount, usedAmount;
+	private volatile int highestSlot;
+	private LongAdder deadClients;
+	private ScheduledExecutorService sweeper;
+	
+	/**
+	 * @param server - The server that removes the dead clients
+	 */
+	public LivenessMonitor(Server server) {
+		this.server = server;
+		this.handlers = new AtomicReferenceArray<ClientHandler>(CAPACITY);
+		this.lastSeen = new AtomicLongArray(CAPACITY);
+		this.intervals = new AtomicIntegerArray(CAPACITY);
+		this.freeSlots = new int[CAPACITY];
+		this.deadClients = new LongAdder();
+	}
+	
+	/**
+	 * Start sweeping the clients for missed beats.
+	 */
+	public void start() {
+		sweeper = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "Liveness Monitor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		
+		sweeper.scheduleAtFixedRate(this, SWEEP_INTERVAL, SWEEP_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Give a client a slot.
+	 * The client is only monitored after his first heartbeat.
+	 * 
+	 * @param handler - The handler of the client
+	 * @return the client's slot, or NO_SLOT if there's no room for him.
+	 */
+	public synchronized int register(ClientHandler handler) {
+		int slot;
+		if (freeAmount > 0) slot = freeSlots[--freeAmount];
+		else if (usedAmount < CAPACITY) slot = usedAmount++;
+		else return NO_SLOT;
+		
+		intervals.set(slot, 0);
+		lastSeen.set(slot, System.currentTimeMillis());
+		handlers.set(slot, handler);
+		if (slot >= highestSlot) highestSlot = slot + 1;
+		return slot;
+	}
+	
+	/**
+	 * Free the slot of a client that's no longer served.
+	 * 
+	 * @param slot - The client's slot
+	 * @param handler - The handler of the client
+	 */
+	public synchronized void unregister(int slot, ClientHandler handler) {
+		if (slot == NO_SLOT || !handlers.compareAndSet(slot, handler, null)) return;
+		
+		intervals.set(slot, 0);
+		freeSlots[freeAmount++] = slot;
+	}
+	
+	/**
+	 * Record that a client is alive.
+	 * 
+	 * @param slot - The client's slot
+	 * @param interval - The interval (in milliseconds) the client promises to beat at,
+	 * 					 or 0 to keep the current one
+	 * @return the interval the client is monitored at, or 0 if he isn't monitored.
+	 */
+	public int beat(int slot, int interval) {
+		if (slot == NO_SLOT) return 0;
+		
+		lastSeen.set(slot, System.currentTimeMillis());
+		if (interval > 0) intervals.set(slot, Math.max(MIN_INTERVAL, Math.min(MAX_INTERVAL, interval)));
+		return intervals.get(slot);
+	}
+	
+	@Override
+	public void run() {
+		long now = System.currentTimeMillis();
+		int found = 0;
+		
+		for (int slot = 0; slot < highestSlot; slot++) {
+			int interval = intervals.get(slot);
+			if (interval == 0 || now - lastSeen.get(slot) <= (long) interval * MISSED_BEATS) continue;
+			
+			ClientHandler handler = handlers.get(slot);
+			if (handler == null) continue;
+			
+			//stop watching the client, so he's removed only once
+			intervals.set(slot, 0);
+			server.dismiss(handler.getClientInfo(), handler.getGame());
+			found++;
+		}
+		
+		if (found > 0) {
+			deadClients.add(found);
+			Logger.print("The liveness monitor has found " + found + " dead clients.");
+		}
+	}
+	
+	/**
+	 * @return the amount of handlers that are served right now.
+	 */
+	public synchronized int getHandlersAmount() { return usedAmount - freeAmount; }
+	
+	/**
+	 * @return the amount of clients that have been removed after missing their beats.
+	 */
+	public long getDeadClientsAmount() { return deadClients.sum(); }
+}
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.hit.server;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import javaNK.util.communication.JSON;
+
+public interface MessageCodec
+{
+	/**
+	 * Write a message into a buffer.
+	 * 
+	 * @param msg - The message to encode
+	 * @param buffer - The buffer to write the encoded message to
+	 * @throws IOException when the message cannot be encoded.
+	 */
+	void encode(JSON msg, ByteBuffer buffer) throws IOException;
+	
+	/**
+	 * Write a message into a new buffer that fits it exactly.
+	 * 
+	 * @param msg - The message to encode
+	 * @return a buffer that's ready to be read, containing the encoded message.
+	 * @throws IOException when the message cannot be encoded.
+	 */
+	ByteBuffer encode(JSON msg) throws IOException;
+	
+	/**
+	 * Write several messages into one new buffer, so they can travel in a single datagram.
+	 * The receiver decodes them as one "batch" message that holds the rest under "messages".
+	 * 
+	 * @param msgs - The messages to encode
+	 * @return a buffer that's ready to be read, containing all of the encoded messages.
+	 * @throws IOException when the messages cannot be encoded.
+	 */
+	ByteBuffer encodeBatch(List<JSON> msgs) throws IOException;
+	
+	/**
+	 * Read a message from a buffer.
+	 * 
+	 * @param buffer - A buffer that contains an encoded message
+	 * @return the decoded message.
+	 * @throws IOException when the buffer does not contain a valid message.
+	 */
+	JSON decode(ByteBuffer buffer) throws IOException;
+}
\ No newline at end of file
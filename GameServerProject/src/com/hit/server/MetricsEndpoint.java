@@ -0,0 +1,89 @@
+package com.hit.server;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class MetricsEndpoint implements HttpHandler
+{
+	public static final String PATH = "/metrics";
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+	
+	private HttpServer httpServer;
+	private ServerMetrics metrics;
+	
+	/**
+	 * @param address - The local address to serve the metrics on
+	 * @param port - The local port to serve the metrics on
+	 * @param metrics - The metrics to serve
+	 * @throws IOException when the port is unavailable.
+	 */
+	public MetricsEndpoint(InetAddress address, int port, ServerMetrics metrics) throws IOException {
+		this.metrics = metrics;
+		this.httpServer = HttpServer.create(new InetSocketAddress(address, port), 0);
+		httpServer.createContext(PATH, this);
+	}
+	
+	/**
+	 * Start serving the metrics (on the HTTP server's own thread).
+	 */
+	public void start() { httpServer.start(); }
+	
+	/**
+	 * Stop serving the metrics.
+	 */
+	public void stop() { httpServer.stop(0); }
+	
+	@Override
+	public void handle(HttpExchange exchange) throws IOException {
+		try {
+			if (!exchange.getRequestMethod().equals("GET")) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+			
+			byte[] body = metrics.exposition().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+			exchange.sendResponseHeaders(200, body.length);
+			
+			try (OutputStream out = exchange.getResponseBody()) { out.write(body); }
+		}
+		finally { exchange.close(); }
+	}
+	
+	/**
+	 * @return the address the metrics are served on.
+	 */
+	public InetSocketAddress getAddress() { return httpServer.getAddress(); }
+	
+	/**
+	 * The metrics are served on the loopback address unless another address is asked for,
+	 * so that a server isn't opened to the network just by exposing its metrics.
+	 * 
+	 * @param args - The arguments the server was launched with
+	 * @return the local address that the arguments ask to serve the metrics on.
+	 * @throws UnknownHostException when the asked address can't be resolved.
+	 */
+	public static InetAddress hostFromArgs(String[] args) throws UnknownHostException {
+		for (String arg : args)
+			if (arg.startsWith("--metrics-host=")) return InetAddress.getByName(arg.substring("--metrics-host=".length()));
+		
+		return InetAddress.getLoopbackAddress();
+	}
+	
+	/**
+	 * @param args - The arguments the server was launched with
+	 * @return the port that the arguments ask to serve the metrics on, or 0 if they shouldn't be served.
+	 */
+	public static int portFromArgs(String[] args) {
+		for (String arg : args)
+			if (arg.startsWith("--metrics-port=")) return Integer.parseInt(arg.substring("--metrics-port=".length()));
+		
+		return 0;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,318 @@
+package com.hit.server;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import com.hit.control.Game;
+import com.hit.control.OpenGame;
+import game_algo.GameBoard.GameMove;
+import game_algo.IGameAlgo.GameState;
+import javaNK.util.communication.JSON;
+import javaNK.util.communication.ResponseCase;
+import javaNK.util.debugging.Logger;
+
+class RequestCases
+{
+	private ClientHandler handler;
+	private List<ResponseCase> cases;
+	private Map<String, ResponseCase> casesByName;
+	
+	/**
+	 * @param handler - The handler of the client that makes the requests
+	 */
+	public RequestCases(ClientHandler handler) {
+		this.handler = handler;
+		this.cases = new ArrayList<ResponseCase>();
+		this.casesByName = new HashMap<String, ResponseCase>();
+		initCases();
+	}
+	
+	/**
+	 * Check if the game reached an end.
+	 * If it did, and the table hasn't been concluded yet, conclude it (notifying every participant once).
+	 * 
+	 * @return true if the game ended.
+	 * @throws IOException when the client's protocol is unavailable.
+	 */
+	public boolean attemptEndgame() throws IOException {
+		Game game = handler.getGame();
+		GameState state = handler.getBoardHandler().getGameState(game.getPlayerSign(), handler.getPlayerIndex());
+		
+		//a concluded table has already sent its end - don't send it again or pause it twice
+		if (state != GameState.IN_PROGRESS) {
+			handler.getOpenGame().concludeIfOver();
+			return true;
+		}
+		else return false;
+	}
+	
+	private void endGame(GameState state) throws IOException {
+		handler.getOpenGame().pauseGame(true);
+		
+		JSON message = new JSON("end_game");
+		message.put("game", handler.getGame().name());
+		message.put("state", state.name());
+		handler.send(message);
+	}
+	
+	/**
+	 * @return all of the cases a client can request.
+	 */
+	public List<ResponseCase> getCases() { return cases; }
+	
+	private void addCase(ResponseCase untimedCase) {
+		ResponseCase responseCase = ServerMetrics.timed(untimedCase);
+		
+		//serve the request only after the table's computer move has been made
+		ResponseCase orderedCase = new ResponseCase() {
+			@Override
+			public String getCaseName() { return responseCase.getCaseName(); }
+			
+			@Override
+			public void respond(JSON msg) throws Exception {
+				handler.getOpenGame().touch();
+				handler.heartbeat(0);
+				
+				Runnable deferredResponse = () -> {
+					try { responseCase.respond(msg); }
+					catch (Exception ex) {
+						Logger.error(msg, "Could not serve the client " + handler.getClientInfo() + ".");
+					}
+				};
+				
+				Executor executor = handler.getComputePool().getExecutor();
+				if (!handler.getOpenGame().deferIfBusy(deferredResponse, executor)) responseCase.respond(msg);
+			}
+		};
+		
+		cases.add(orderedCase);
+		casesByName.put(orderedCase.getCaseName(), orderedCase);
+	}
+	
+	private void initCases() {
+		//get player's sign
+		addCase(new ResponseCase() {
+			@Override
+			public String getCaseName() { return "player_sign"; }
+			
+			@Override
+			public void respond(JSON msg) throws Exception {
+				JSON message = new JSON("player_sign");
+				message.put("sign", "" + handler.getGame().getPlayerSign());
+				handler.send(message);
+			}
+		});
+		
+		//get player 2's sign
+		addCase(new ResponseCase() {
+			@Override
+			public String getCaseName() { return "player2_sign"; }
+			
+			@Override
+			public void respond(JSON msg) throws Exception {
+				JSON message = new JSON("player2_sign");
+				message.put("sign", "" + handler.getGame().getComputerSign());
+				handler.send(message);
+			}
+		});
+		
+		//make a player move
+		addCase(new ResponseCase() {
+			@Override
+			public String getCaseName() { return "player_move"; }
+			
+			@Override
+			public void respond(JSON msg) throws Exception {
+				int row = msg.getInt("row");
+				int col = msg.getInt("column");
+				Game game = handler.getGame();
+				GameMove move = game.getMove(row, col);
+				
+				//make the move + check if unsuccessful
+				boolean success = handler.getBoardHandler().updatePlayerMove(move, game.getPlayerSign(), handler.getPlayerIndex());
+				
+				JSON message = new JSON("player_move");
+				message.put("success", success);
+				handler.send(message);
+				
+				JSON p2message = new JSON("player2_move");
+				p2message.put("row", row);
+				p2message.put("column", col);
+				handler.getOpenGame().notifyOthers(handler.getClientInfo(), p2message);
+				
+				if (success) handler.getOpenGame().concludeIfOver();
+			}
+		});
+		
+		//make a computer move
+		addCase(new ResponseCase() {
+			@Override
+			public String getCaseName() { return "computer_move"; }
+			
+			@Override
+			public void respond(JSON msg) throws Exception {
+				OpenGame openGame = handler.getOpenGame();
+				char compSign = handler.getGame().getComputerSign();
+				
+				//search away from the client's thread, and answer when the move is made
+				CompletableFuture<GameMove> computation = handler.getComputePool().computeMove(handler.getBoardHandler(), compSign);
+				CompletableFuture<Void> answer = computation.thenAccept(compMove -> {
+					//notify player 1 which move was made
+					JSON message = new JSON("player2_move");
+					message.put("row", compMove.getRow());
+					message.put("column", compMove.getColumn());
+					openGame.notifyAll(message);
+					
+					try { openGame.concludeIfOver(); }
+					catch (IOException ex) { Logger.error(msg, "Could not announce the end of the game."); }
+				});
+				
+				answer.exceptionally(ex -> {
+					Logger.error(msg, "Could not make a computer move.");
+					return null;
+				});
+				
+				openGame.addWork(answer);
+			}
+		});
+		
+		//place the player's sign on the board manually
+		addCase(new ResponseCase() {
+			@Override
+			public String getCaseName() { return "place_player"; }
+			
+			@Override
+			public void respond(JSON msg) throws Exception {
+				int row = msg.getInt("row");
+				int col = msg.getInt("column");
+				Game game = handler.getGame();
+				handler.getBoardHandler().place(game.getMove(row, col), game.getPlayerSign());
+				
+				JSON message = new JSON("player2_move");
+				message.put("row", row);
+				message.put("column", col);
+				handler.getOpenGame().notifyOthers(handler.getClientInfo(), message);
+			}
+		});
+		
+		//place the computer's sign on the board manually
+		addCase(new ResponseCase() {
+			@Override
+			public String getCaseName() { return "place_computer"; }
+			
+			@Override
+			public void respond(JSON msg) throws Exception {
+				int row = msg.getInt("row");
+				int col = msg.getInt("column");
+				Game game = handler.getGame();
+				handler.getBoardHandler().place(game.getMove(row, col), game.getComputerSign());
+			}
+		});
+		
+		//make a random player move
+		addCase(new ResponseCase() {
+			@Override
+			public String getCaseName() { return "player_random"; }
+			
+			@Override
+			public void respond(JSON msg) throws Exception {
+				GameMove move = handler.getBoardHandler().randomMove(handler.getGame().getPlayerSign(), handler.getPlayerIndex());
+				JSON message = new JSON("player_random");
+				message.put("row", move.getRow());
+				message.put("column", move.getColumn());
+				handler.send(message);
+				
+				//a new message, since the first one might still be waiting to be sent
+				JSON p2message = new JSON("player2_move");
+				p2message.put("row", move.getRow());
+				p2message.put("column", move.getColumn());
+				handler.getOpenGame().notifyOthers(handler.getClientInfo(), p2message);
+				
+				handler.getOpenGame().concludeIfOver();
+			}
+		});
+		
+		//make a random computer move
+		addCase(new ResponseCase() {
+			@Override
+			public String getCaseName() { return "computer_random"; }
+			
+			@Override
+			public void respond(JSON msg) throws Exception {
+				GameMove move = handler.getBoardHandler().randomCompMove();
+				JSON message = new JSON("computer_random");
+				message.put("row", move.getRow());
+				message.put("column", move.getColumn());
+				handler.send(message);
+				
+				//a new message, since the first one might still be waiting to be sent
+				JSON p2message = new JSON("player2_move");
+				p2message.put("row", move.getRow());
+				p2message.put("column", move.getColumn());
+				handler.getOpenGame().notifyOthers(handler.getClientInfo(), p2message);
+				
+				handler.getOpenGame().concludeIfOver();
+			}
+		});
+		
+		//check that the game is over (the server pushes the end of the game by itself - kept for older clients, answered with the state only)
+		addCase(new ResponseCase() {
+			@Override
+			public String getCaseName() { return "is_over"; }
+			
+			@Override
+			public void respond(JSON msg) throws Exception {
+				boolean over = attemptEndgame();
+				
+				JSON message = new JSON("is_over");
+				message.put("over", over);
+				handler.send(message);
+			}
+		});
+		
+		//serve several requests that arrived together, in order
+		addCase(new ResponseCase() {
+			@Override
+			public String getCaseName() { return "batch"; }
+			
+			@Override
+			public void respond(JSON msg) throws Exception {
+				for (JSON request : msg.getJSONArray("messages")) {
+					ResponseCase responseCase = casesByName.get(request.getType());
+					if (responseCase != null && !request.getType().equals(getCaseName())) responseCase.respond(request);
+				}
+			}
+		});
+		
+		//keep the client alive (clients that never send a heartbeat are not monitored)
+		addCase(new ResponseCase() {
+			@Override
+			public String getCaseName() { return "heartbeat"; }
+			
+			@Override
+			public void respond(JSON msg) throws Exception {
+				int interval;
+				try { interval = msg.getInt("interval"); }
+				catch (Exception ex) { interval = LivenessMonitor.DEFAULT_INTERVAL; }
+				
+				JSON message = new JSON("heartbeat");
+				message.put("interval", handler.heartbeat(interval));
+				handler.send(message);
+			}
+		});
+		
+		//force the player's loss in the game
+		addCase(new ResponseCase() {
+			@Override
+			public String getCaseName() { return "force_loss"; }
+			
+			@Override
+			public void respond(JSON msg) throws Exception {
+				endGame(GameState.PLAYER_LOST);
+			}
+		});
+	}
+}
\ No newline at end of file
@@ -2,8 +2,12 @@ package com.hit.server;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.IOException;
-import java.util.HashSet;
+import java.net.InetSocketAddress;
+import java.util.Collection;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import com.hit.control.ClientIdentity;
 import com.hit.control.Game;
 import com.hit.control.OpenGame;
@@ -11,31 +15,76 @@ import com.hit.services.GameServerController;
 import com.hit.util.CLI;
 import javaNK.util.communication.JSON;
 import javaNK.util.communication.NetworkInformation;
-import javaNK.util.communication.Protocol;
 import javaNK.util.communication.ResponseCase;
 import javaNK.util.communication.ResponseEngine;
 import javaNK.util.debugging.Logger;
-import javaNK.util.threads.ThreadUtility;
 
 public class Server extends ResponseEngine implements PropertyChangeListener
 {
+	private static final int MAX_PLATFORM_HANDLERS = 2000;
+	
 	private GameServerController controller;
+	private ChannelTransport transport;
+	private Broadcaster broadcaster;
+	private ComputePool computePool;
+	private TableReaper reaper;
+	private LivenessMonitor liveness;
+	private ServerMetrics metrics;
+	private ThreadMode threadMode;
+	private AdmissionPipeline admission;
+	private AdmissionController admissionControl;
 	private Set<NetworkInformation> clients;
-	private int backlog;
+	private LongAdder backlogRejections, busyRejections;
 	
 	/**
 	 * @param serverNetwork - The network information of the server
 	 * @throws IOException when the port is unavailable.
 	 */
 	public Server(NetworkInformation serverNetwork) throws IOException {
+		this(serverNetwork, null, ThreadMode.PLATFORM);
+	}
+	
+	/**
+	 * @param serverNetwork - The network information of the server
+	 * @param transport - A shared channel that serves all of the seated clients,
+	 * 					  or null to serve each client with a private protocol
+	 * @param threadMode - The kind of threads that run the server and the clients' request handlers
+	 * @throws IOException when the port is unavailable.
+	 */
+	public Server(NetworkInformation serverNetwork, ChannelTransport transport, ThreadMode threadMode) throws IOException {
 		super(serverNetwork, false);
 		
 		this.controller = new GameServerController(this);
-		this.clients = new HashSet<NetworkInformation>();
-		this.backlog = CLI.DEFAULT_BACKLOG;
+		this.transport = transport;
+		this.threadMode = threadMode;
+		
+		//messages that the server initiates come from its own port, and never retarget the protocol
+		this.broadcaster = (transport != null) ? transport.getBroadcaster() : new Broadcaster(protocol);
+		this.admission = new AdmissionPipeline(this, controller, transport);
+		this.computePool = new ComputePool();
+		this.reaper = new TableReaper(this);
+		this.liveness = new LivenessMonitor(this);
+		this.metrics = new ServerMetrics(this, controller);
+		this.clients = ConcurrentHashMap.newKeySet();
+		this.backlogRejections = new LongAdder();
+		this.busyRejections = new LongAdder();
+		
+		//every client that's served by a private protocol and a platform thread costs a thread of its own
+		int handlersCeiling = (transport == null && threadMode == ThreadMode.PLATFORM) ? MAX_PLATFORM_HANDLERS
+																					 : AdmissionController.UNBOUNDED_HANDLERS;
+		
+		this.admissionControl = new AdmissionController(this, CLI.DEFAULT_BACKLOG, handlersCeiling);
+		if (transport != null) transport.start();
+		reaper.start();
+		liveness.start();
+		admissionControl.start();
+		metrics.start();
 		start();
 	}
 	
+	@Override
+	public void run() { threadMode.run(super::run, "Server"); }
+	
 	@Override
 	public void propertyChange(PropertyChangeEvent e) {
 		switch (e.getPropertyName()) {
@@ -45,14 +94,18 @@ public class Server extends ResponseEngine implements PropertyChangeListener
 				
 				//close all running games
 				if (!running) {
-					for (NetworkInformation clientInfo : clients)
-						for (Game game : Game.values())
-							controller.closeGame(clientInfo, game, false);
+					for (Game game : Game.values()) {
+						admission.execute(game, () -> {
+							for (NetworkInformation clientInfo : clients)
+								controller.closeGame(clientInfo, game, false);
+						});
+					}
 				}
 				
 				break;
 			}
-			case "backlog": backlog = (int) e.getNewValue(); break;
+			case "backlog": admissionControl.setLimit((int) e.getNewValue()); break;
+			case "metrics": Logger.print(metrics.report()); break;
 		}
 	}
 
@@ -65,9 +118,8 @@ public class Server extends ResponseEngine implements PropertyChangeListener
 	protected void notifyStart(OpenGame openGame) throws IOException {
 		boolean gaveTurn = false;
 		boolean firstTurnGiver;
-		Set<Protocol> allProtocols = openGame.getAllProtocols();
 		
-		for (Protocol clientProtocol : allProtocols) {
+		for (ClientIdentity client : openGame.getClients()) {
 			//give first turn to the first player in list
 			if (!gaveTurn) {
 				firstTurnGiver = true;
@@ -81,32 +133,199 @@ public class Server extends ResponseEngine implements PropertyChangeListener
 			message.put("turn", firstTurnGiver);
 			
 			for (ClientIdentity id : openGame.getClients())
-				if (id.getProtocol() != clientProtocol) //send only the OTHER clients' information
+				if (id != client) //send only the OTHER clients' information
 					message.put("other_player", id.generateJSONObject("-"));
 			
-			protocol.setRemoteNetworkInformation(clientProtocol.getRemoteNetworkInformation());
-			
 			//start handle request thread
-			openGame.getRequestHandler(clientProtocol).start();
-			protocol.send(message);
+			client.getHandler().start();
+			notify(client.getClientInfo(), message);
 		}
 		
 		openGame.start();
 	}
 	
+	/**
+	 * Create the handler that serves a client during a game.
+	 * 
+	 * @param openGame - The game the client is playing
+	 * @param id - The identity of the client
+	 * @param playerIndex - The index of the client (unique for every client of the open game)
+	 * @return a shared channel session if the server has one, or a private request handler otherwise.
+	 * @throws IOException when the client's protocol is unavailable.
+	 */
+	public ClientHandler createHandler(OpenGame openGame, ClientIdentity id, int playerIndex) throws IOException {
+		if (transport != null) return new ClientSession(openGame, transport, id.getClientInfo(), playerIndex, computePool, liveness);
+		else return new HandleRequest(this, openGame, id.getProtocol(), playerIndex, threadMode, computePool, liveness);
+	}
+	
 	/**
 	 * Notify one client with a custom message.
-	 * @param prot - The protocol of the client
+	 * @param clientInfo - The network information of the client
 	 * @param msg - The JSON message
 	 * @throws IOException when the client's protocol is unavailable
 	 */
-	public void notify(Protocol prot, JSON msg) throws IOException {
-		protocol.send(msg, prot.getRemoteNetworkInformation());
+	public void notify(NetworkInformation clientInfo, JSON msg) throws IOException {
+		broadcaster.send(msg, ChannelTransport.toSocketAddress(clientInfo));
+	}
+	
+	/**
+	 * Notify a group of clients with the same message.
+	 * 
+	 * @param targets - The addresses of the clients
+	 * @param exclude - One address to skip, or null to notify all of them
+	 * @param msg - The JSON message
+	 * @throws IOException when at least one of the clients is unreachable.
+	 */
+	public void broadcast(InetSocketAddress[] targets, InetSocketAddress exclude, JSON msg) throws IOException {
+		broadcaster.broadcast(msg, targets, exclude);
 	}
 	
+	/**
+	 * @return the pool that computes the computer's moves.
+	 */
+	public ComputePool getComputePool() { return computePool; }
+	
+	/**
+	 * Count a client that has been admitted to a game, and watch the game for inactivity.
+	 * 
+	 * @param clientInfo - The network information of the client
+	 * @param openGame - The game the client has been seated at
+	 */
+	void seated(NetworkInformation clientInfo, OpenGame openGame) {
+		clients.add(clientInfo);
+		broadcaster.track(clientInfo);
+		reaper.track(openGame);
+	}
+	
+	/**
+	 * Tell a client that he can't be seated right now, and when it's worth asking again.
+	 * 
+	 * @param clientInfo - The network information of the client
+	 * @param full - True if the server has reached its limit of clients, or false if it's only busy admitting others
+	 */
+	void turnAway(NetworkInformation clientInfo, boolean full) {
+		int retryAfter;
+		
+		if (full) {
+			backlogRejections.increment();
+			retryAfter = admissionControl.retryAfter(getOccupancy());
+		}
+		else {
+			busyRejections.increment();
+			retryAfter = admissionControl.busyRetryAfter();
+		}
+		
+		JSON message = new JSON("new_client");
+		message.put("port", 0);
+		message.put("available", false);
+		message.put("retry_after", retryAfter);
+		
+		try { notify(clientInfo, message); }
+		catch (IOException ex) {
+			Logger.error(message, "Could not contact the client " + clientInfo + ".");
+		}
+	}
+	
+	/**
+	 * Remove all of the clients of an idle game, and close it (a game without clients is just closed).
+	 * Their handlers and protocols are released, and each of them is told once that the game has ended.
+	 * 
+	 * @param openGame - The game to close
+	 * @return the amount of clients that have been evicted, once the game is closed.
+	 */
+	CompletableFuture<Integer> evict(OpenGame openGame) {
+		CompletableFuture<Integer> evicted = new CompletableFuture<Integer>();
+		
+		admission.execute(openGame.getGame(), () -> {
+			Collection<ClientIdentity> removed = controller.closeGame(openGame);
+			
+			for (ClientIdentity id : removed) release(id.getClientInfo());
+			
+			evicted.complete(removed.size());
+		});
+		
+		return evicted;
+	}
+	
+	/**
+	 * Remove a client that has left his game (or stopped answering), and close it for him.
+	 * The other clients are told that their partner has disconnected.
+	 * 
+	 * @param clientInfo - The network information of the client
+	 * @param game - The game the client has been playing
+	 */
+	void dismiss(NetworkInformation clientInfo, Game game) {
+		admission.execute(game, () -> {
+			OpenGame openGame = controller.closeGame(clientInfo, game, true);
+			Logger.print("The client " + clientInfo + " has left\n" + openGame + ".");
+			release(clientInfo);
+		});
+	}
+	
+	/**
+	 * Stop counting a client that has been removed from his game, and forget how he's reached.
+	 * 
+	 * @param clientInfo - The network information of the client
+	 */
+	private void release(NetworkInformation clientInfo) {
+		admission.abandon(clientInfo);
+		clients.remove(clientInfo);
+		broadcaster.forget(ChannelTransport.toSocketAddress(clientInfo));
+	}
+	
+	/**
+	 * @return the reaper that watches the games for inactivity.
+	 */
+	public TableReaper getReaper() { return reaper; }
+	
+	/**
+	 * @return the monitor that finds clients who stopped sending heartbeats.
+	 */
+	public LivenessMonitor getLivenessMonitor() { return liveness; }
+	
+	/**
+	 * @return the latencies of the requests, and the state of the server's components.
+	 */
+	public ServerMetrics getMetrics() { return metrics; }
+	
+	/**
+	 * @return the amount of clients that are seated in games.
+	 */
+	public int getClientsAmount() { return clients.size(); }
+	
+	/**
+	 * @return the amount of clients that are seated in games, or are being seated right now.
+	 */
+	public int getOccupancy() { return clients.size() + admission.getInFlightAmount(); }
+	
+	/**
+	 * @return the pipeline that seats the clients.
+	 */
+	public AdmissionPipeline getAdmission() { return admission; }
+	
+	/**
+	 * @return the controller that adapts the amount of clients the server takes to its load.
+	 */
+	public AdmissionController getAdmissionControl() { return admissionControl; }
+	
+	/**
+	 * @return the broadcaster that sends the messages the server initiates.
+	 */
+	public Broadcaster getBroadcaster() { return broadcaster; }
+	
+	/**
+	 * @return the amount of clients that have been turned away because the server was at its limit.
+	 */
+	public long getBacklogRejectionsAmount() { return backlogRejections.sum(); }
+	
+	/**
+	 * @return the amount of clients that have been turned away because too many clients were being admitted.
+	 */
+	public long getBusyRejectionsAmount() { return busyRejections.sum(); }
+	
 	protected void initCases() {
 		//new client service
-		addCase(new ResponseCase() {
+		addCase(ServerMetrics.timed(new ResponseCase() {
 			@Override
 			public String getCaseName() { return "new_client"; }
 			
@@ -115,45 +334,27 @@ public class Server extends ResponseEngine implements PropertyChangeListener
 				//the game the client is referring to, and his network information
 				Game game = Game.valueOf(msg.getString("game"));
 				NetworkInformation clientInfo = new NetworkInformation(msg.getJSON("client"));
-				protocol.setRemoteNetworkInformation(clientInfo);
-				
-				//reached limit of clients
-				if (clients.size() >= backlog) {
-					JSON message = new JSON("new_client");
-					message.put("port", 0);
-					message.put("available", false);
-					protocol.send(message);
-					return;
-				}
-				
-				//check if client already playing
-				if (!controller.isAllowed(clientInfo, game)) return;
-				
-				//create a new protocol that listens to the new client
-				Protocol newProt = new Protocol();
-				newProt.setRemoteNetworkInformation(clientInfo);
-				
-				OpenGame openGame = controller.addClient(newProt, game, msg);
 				
-				//notify client about his new target port
-				JSON message = new JSON("new_client");
-				message.put("available", true);
-				message.merge(newProt.getLocalNetworkInformation().composeJSON());
-				protocol.send(message);
-				
-				ThreadUtility.delay(100);
-				Logger.print("The client " + newProt.getRemoteNetworkInformation()
-						   + " has subscribed to\n" + openGame + ".");
-				
-				clients.add(clientInfo);
-				
-				//inform all about the beginning of the game
-				if (openGame.canRun()) notifyStart(openGame);
+				//reached limit of clients (counting the ones that are still being seated), or too many are being admitted right now
+				boolean full = !admissionControl.allows(getOccupancy());
+				if (full || !admission.admit(clientInfo, game, msg)) turnAway(clientInfo, full);
 			}
-		});
+		}));
+		
+		//client is ready to start his game service
+		addCase(ServerMetrics.timed(new ResponseCase() {
+			@Override
+			public String getCaseName() { return "client_ready"; }
+			
+			@Override
+			public void respond(JSON msg) throws Exception {
+				NetworkInformation clientInfo = new NetworkInformation(msg.getJSON("client"));
+				admission.acknowledge(clientInfo);
+			}
+		}));
 		
 		//leaving client service
-		addCase(new ResponseCase() {
+		addCase(ServerMetrics.timed(new ResponseCase() {
 			@Override
 			public String getCaseName() { return "leaving_client"; }
 			
@@ -163,14 +364,12 @@ public class Server extends ResponseEngine implements PropertyChangeListener
 				Game game = Game.valueOf(msg.getString("game"));
 				NetworkInformation clientInfo = new NetworkInformation(msg.getJSON("client"));
 				
-				OpenGame openGame = controller.closeGame(clientInfo, game, true);
-				Logger.print("The client " + clientInfo + " has left\n" + openGame + ".");
-				clients.remove(clientInfo);
+				dismiss(clientInfo, game);
 			}
-		});
+		}));
 		
 		//restart game for client service
-		addCase(new ResponseCase() {
+		addCase(ServerMetrics.timed(new ResponseCase() {
 			@Override
 			public String getCaseName() { return "happy_client"; }
 			
@@ -180,11 +379,13 @@ public class Server extends ResponseEngine implements PropertyChangeListener
 				Game game = Game.valueOf(msg.getString("game"));
 				NetworkInformation clientInfo = new NetworkInformation(msg.getJSON("client"));
 				
-				OpenGame openGame = controller.restartGame(clientInfo, game);
-				
-				//inform all about the beginning of the game
-				if (openGame.canRun()) notifyStart(openGame);
+				admission.execute(game, () -> {
+					OpenGame openGame = controller.restartGame(clientInfo, game);
+					
+					//inform all about the beginning of the game
+					if (openGame != null && openGame.canRun()) admission.startWhenReady(openGame);
+				});
 			}
-		});
+		}));
 	}
 }
\ No newline at end of file
@@ -0,0 +1,292 @@
+package com.hit.server;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import com.hit.control.Game;
+import com.hit.services.GameServerController;
+import javaNK.util.communication.JSON;
+import javaNK.util.communication.ResponseCase;
+import javaNK.util.debugging.Logger;
+
+public class ServerMetrics implements Runnable
+{
+	private static final long DUMP_INTERVAL = 60;
+	private static final String PREFIX = "playertwo_";
+	private static final double[] QUANTILES = { 0.5, 0.99, 0.999 };
+	
+	/*
+	 * One histogram per case name, shared by all of the handlers that serve that case.
+	 * A case looks its histogram up once when it's created, so requests never touch the map.
+	 */
+	private static Map<String, LatencyHistogram> caseLatencies = new ConcurrentSkipListMap<String, LatencyHistogram>();
+	
+	private Server server;
+	private GameServerController controller;
+	private long startTime, dumpInterval;
+	private ScheduledExecutorService dumper;
+	
+	/**
+	 * @param server - The main Server object
+	 * @param controller - The controller that holds the open games
+	 */
+	public ServerMetrics(Server server, GameServerController controller) {
+		this(server, controller, DUMP_INTERVAL);
+	}
+	
+	/**
+	 * @param server - The main Server object
+	 * @param controller - The controller that holds the open games
+	 * @param dumpInterval - The time (in seconds) between two dumps of the metrics to the log, or 0 to never dump them
+	 */
+	public ServerMetrics(Server server, GameServerController controller, long dumpInterval) {
+		this.server = server;
+		this.controller = controller;
+		this.dumpInterval = dumpInterval;
+		this.startTime = System.nanoTime();
+	}
+	
+	/**
+	 * Start dumping the metrics to the log periodically.
+	 */
+	public void start() {
+		if (dumpInterval <= 0) return;
+		
+		dumper = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "Metrics Dump");
+			thread.setDaemon(true);
+			return thread;
+		});
+		
+		dumper.scheduleAtFixedRate(this, dumpInterval, dumpInterval, TimeUnit.SECONDS);
+	}
+	
+	@Override
+	public void run() { Logger.print(report()); }
+	
+	/**
+	 * @param caseName - The name of a case
+	 * @return the histogram of the case's latencies.
+	 */
+	public static LatencyHistogram caseLatency(String caseName) {
+		return caseLatencies.computeIfAbsent(caseName, name -> new LatencyHistogram());
+	}
+	
+	/**
+	 * Wrap a case, so the time it takes to serve every request is recorded.
+	 * 
+	 * @param responseCase - The case to wrap
+	 * @return a case that serves the requests the same way, and records their latencies.
+	 */
+	public static ResponseCase timed(ResponseCase responseCase) {
+		LatencyHistogram histogram = caseLatency(responseCase.getCaseName());
+		
+		return new ResponseCase() {
+			@Override
+			public String getCaseName() { return responseCase.getCaseName(); }
+			
+			@Override
+			public void respond(JSON msg) throws Exception {
+				long startTime = System.nanoTime();
+				
+				try { responseCase.respond(msg); }
+				catch (Exception ex) {
+					histogram.recordFailure();
+					throw ex;
+				}
+				
+				histogram.record(System.nanoTime() - startTime);
+			}
+		};
+	}
+	
+	/**
+	 * @return a readable snapshot of all of the server's metrics.
+	 */
+	public String report() {
+		double uptime = (System.nanoTime() - startTime) / 1e9;
+		StringBuilder builder = new StringBuilder();
+		
+		builder.append(String.format("Metrics after %.0f seconds:%n", uptime));
+		builder.append(String.format("Open tables: %d, pending tables: %d, seated clients: %d, live handlers: %d%n",
+									 controller.getOpenGamesAmount(), controller.getPendingGamesAmount(),
+									 server.getClientsAmount(), server.getLivenessMonitor().getHandlersAmount()));
+		
+		//latencies are in microseconds
+		builder.append(String.format("%-16s %10s %9s %8s %8s %8s %8s %8s %8s%n",
+									 "Case", "Count", "Rate/s", "Failed", "Avg", "P50", "P99", "P99.9", "Max"));
+		
+		for (Map.Entry<String, LatencyHistogram> entry : caseLatencies.entrySet()) {
+			LatencyHistogram histogram = entry.getValue();
+			
+			builder.append(String.format("%-16s %10d %9.1f %8d %8d %8d %8d %8d %8d%n",
+										 entry.getKey(), histogram.getCount(), histogram.getCount() / uptime,
+										 histogram.getFailures(), histogram.getAverage(),
+										 histogram.getPercentile(50), histogram.getPercentile(99),
+										 histogram.getPercentile(99.9), histogram.getMax()));
+		}
+		
+		ComputePool computePool = server.getComputePool();
+		builder.append(String.format("Compute pool: %d queued, %d computed, %d fallbacks, %d overruns, "
+								   + "%d avg latency, %d max latency%n",
+									 computePool.getQueueDepth(), computePool.getComputedAmount(),
+									 computePool.getFallbacksAmount(), computePool.getOverrunsAmount(),
+									 computePool.getAverageLatency(), computePool.getMaxLatency()));
+		
+		TableReaper reaper = server.getReaper();
+		builder.append(String.format("Reaper: %d tracked tables, %d reaped tables, %d reaped clients, %d dead clients",
+									 reaper.getTrackedAmount(), reaper.getReapedTablesAmount(),
+									 reaper.getReapedClientsAmount(), server.getLivenessMonitor().getDeadClientsAmount()));
+		
+		AdmissionController admissionControl = server.getAdmissionControl();
+		builder.append(String.format("%nAdmission: %d clients limit, %d increases, %d decreases, pressure: %s",
+									 admissionControl.getLimit(), admissionControl.getIncreasesAmount(),
+									 admissionControl.getDecreasesAmount(), admissionControl.getPressure()));
+		
+		MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+		builder.append(String.format("%nProcess: %d platform threads, %d MB heap used, %d MB heap committed",
+									 ManagementFactory.getThreadMXBean().getThreadCount(),
+									 heap.getUsed() >> 20, heap.getCommitted() >> 20));
+		
+		return builder.toString();
+	}
+	
+	/**
+	 * Render all of the server's metrics in the Prometheus text format.
+	 * Every value is read from a counter or a concurrent collection, so nothing is locked while rendering.
+	 * 
+	 * @return the metrics in the Prometheus text format.
+	 */
+	public String exposition() {
+		StringBuilder builder = new StringBuilder(4096);
+		
+		//tables
+		header(builder, "open_tables", "gauge", "Open tables (running or not).");
+		for (Game game : Game.values())
+			sample(builder, "open_tables", "game", game.name(), controller.getOpenGamesAmount(game));
+		
+		header(builder, "pending_tables", "gauge", "Open tables that wait for more clients.");
+		for (Game game : Game.values())
+			sample(builder, "pending_tables", "game", game.name(), controller.getPendingGamesAmount(game));
+		
+		//clients
+		header(builder, "seated_clients", "gauge", "Clients that are seated in games.");
+		sample(builder, "seated_clients", null, null, server.getClientsAmount());
+		header(builder, "admitting_clients", "gauge", "Clients that have been accepted, but are not seated yet.");
+		sample(builder, "admitting_clients", null, null, server.getAdmission().getInFlightAmount());
+		header(builder, "live_handlers", "gauge", "Handlers that serve clients.");
+		sample(builder, "live_handlers", null, null, server.getLivenessMonitor().getHandlersAmount());
+		header(builder, "admission_limit", "gauge", "Clients the server takes before turning new ones away.");
+		sample(builder, "admission_limit", null, null, server.getAdmissionControl().getLimit());
+		header(builder, "admitted_clients_total", "counter", "Clients that have been seated in games.");
+		sample(builder, "admitted_clients_total", null, null, server.getAdmission().getAdmittedAmount());
+		header(builder, "rejected_clients_total", "counter", "Clients that have been turned away.");
+		sample(builder, "rejected_clients_total", "reason", "backlog", server.getBacklogRejectionsAmount());
+		sample(builder, "rejected_clients_total", "reason", "busy", server.getBusyRejectionsAmount());
+		header(builder, "dead_clients_total", "counter", "Clients that have been removed after missing their heartbeats.");
+		sample(builder, "dead_clients_total", null, null, server.getLivenessMonitor().getDeadClientsAmount());
+		header(builder, "reaped_tables_total", "counter", "Idle tables that have been closed.");
+		sample(builder, "reaped_tables_total", null, null, server.getReaper().getReapedTablesAmount());
+		
+		//process
+		MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+		header(builder, "platform_threads", "gauge", "Live platform threads (virtual threads are not counted).");
+		sample(builder, "platform_threads", null, null, ManagementFactory.getThreadMXBean().getThreadCount());
+		header(builder, "heap_used_bytes", "gauge", "Heap memory in use.");
+		sample(builder, "heap_used_bytes", null, null, heap.getUsed());
+		header(builder, "heap_committed_bytes", "gauge", "Heap memory that's committed by the JVM.");
+		sample(builder, "heap_committed_bytes", null, null, heap.getCommitted());
+		
+		//outgoing messages
+		Broadcaster broadcaster = server.getBroadcaster();
+		header(builder, "broadcasts_total", "counter", "Messages that have been sent to a group of clients.");
+		sample(builder, "broadcasts_total", null, null, broadcaster.getBroadcastsAmount());
+		header(builder, "broadcast_fanout_total", "counter", "Clients that group messages have been addressed to.");
+		sample(builder, "broadcast_fanout_total", null, null, broadcaster.getFanOutAmount());
+		header(builder, "sent_datagrams_total", "counter", "Datagrams that have been sent.");
+		sample(builder, "sent_datagrams_total", null, null, broadcaster.getDatagramsAmount());
+		header(builder, "sent_bytes_total", "counter", "Bytes that have been sent through the shared channel.");
+		sample(builder, "sent_bytes_total", null, null, broadcaster.getSentBytesAmount());
+		
+		//computer moves
+		ComputePool computePool = server.getComputePool();
+		header(builder, "compute_queue_depth", "gauge", "Computer moves that wait for a thread.");
+		sample(builder, "compute_queue_depth", null, null, computePool.getQueueDepth());
+		header(builder, "compute_fallbacks_total", "counter", "Computer moves that the random model made instead.");
+		sample(builder, "compute_fallbacks_total", null, null, computePool.getFallbacksAmount());
+		header(builder, "compute_overruns_total", "counter", "Computer moves that took longer than their budget.");
+		sample(builder, "compute_overruns_total", null, null, computePool.getOverrunsAmount());
+		header(builder, "compute_search_seconds", "summary", "Time it took to compute the smart moves.");
+		summary(builder, "compute_search_seconds", null, null, computePool.getSearchTime());
+		
+		//requests
+		header(builder, "request_seconds", "summary", "Time it took to serve the requests, by case.");
+		for (Map.Entry<String, LatencyHistogram> entry : caseLatencies.entrySet())
+			summary(builder, "request_seconds", "case", entry.getKey(), entry.getValue());
+		
+		header(builder, "request_failures_total", "counter", "Requests that could not be served, by case.");
+		for (Map.Entry<String, LatencyHistogram> entry : caseLatencies.entrySet())
+			sample(builder, "request_failures_total", "case", entry.getKey(), entry.getValue().getFailures());
+		
+		return builder.toString();
+	}
+	
+	/**
+	 * Append the help and type lines of a metric.
+	 * 
+	 * @param builder - The builder of the exposition
+	 * @param name - The name of the metric
+	 * @param type - The type of the metric
+	 * @param help - A description of the metric
+	 */
+	private static void header(StringBuilder builder, String name, String type, String help) {
+		builder.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+		builder.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+	}
+	
+	/**
+	 * Append one sample.
+	 * 
+	 * @param builder - The builder of the exposition
+	 * @param name - The name of the metric
+	 * @param label - The name of the sample's label, or null if it has none
+	 * @param labelValue - The value of the label
+	 * @param value - The value of the sample
+	 */
+	private static void sample(StringBuilder builder, String name, String label, String labelValue, double value) {
+		builder.append(PREFIX).append(name);
+		if (label != null) builder.append('{').append(label).append("=\"").append(labelValue).append("\"}");
+		builder.append(' ').append(value).append('\n');
+	}
+	
+	/**
+	 * Append the quantiles, the sum and the count of a histogram (in seconds).
+	 * 
+	 * @param builder - The builder of the exposition
+	 * @param name - The name of the metric
+	 * @param label - The name of the histogram's label, or null if it has none
+	 * @param labelValue - The value of the label
+	 * @param histogram - The histogram to append
+	 */
+	private static void summary(StringBuilder builder, String name, String label,
+								String labelValue, LatencyHistogram histogram) {
+		
+		String labels = (label != null) ? label + "=\"" + labelValue + "\"," : "";
+		
+		for (double quantile : QUANTILES) {
+			builder.append(PREFIX).append(name).append('{').append(labels).append("quantile=\"").append(quantile).append("\"} ");
+			builder.append(histogram.getPercentile(quantile * 100) / 1e6).append('\n');
+		}
+		
+		sample(builder, name + "_sum", label, labelValue, histogram.getTotal() / 1e6);
+		sample(builder, name + "_count", label, labelValue, histogram.getCount());
+	}
+	
+	/**
+	 * @return the histograms of all of the cases that have been created so far, by case name.
+	 */
+	public static Map<String, LatencyHistogram> getCaseLatencies() { return caseLatencies; }
+}
\ No newline at end of file
@@ -0,0 +1,194 @@
+package com.hit.server;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import com.hit.control.OpenGame;
+import javaNK.util.debugging.Logger;
+
+public class TableReaper implements Runnable
+{
+	private static final int WHEEL_SIZE = 512;
+	private static final long TICK = 1000;
+	private static final long PENDING_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+	private static final long RUNNING_TIMEOUT = TimeUnit.MINUTES.toMillis(10);
+	private static final long ENDED_TIMEOUT = TimeUnit.MINUTES.toMillis(2);
+	
+	private Server server;
+	private volatile long pendingTimeout, runningTimeout, endedTimeout;
+	private List<Queue<OpenGame>> wheel;
+	private Set<OpenGame> tracked;
+	private volatile long currentTick;
+	private LongAdder reapedTables, reapedClients;
+	private ScheduledExecutorService ticker;
+	
+	/**
+	 * @param server - The server that evicts the clients of idle tables
+	 */
+	public TableReaper(Server server) {
+		this(server, PENDING_TIMEOUT, RUNNING_TIMEOUT, ENDED_TIMEOUT);
+	}
+	
+	/**
+	 * @param server - The server that evicts the clients of idle tables
+	 * @param pendingTimeout - The time (in milliseconds) a table may wait for more clients without any activity
+	 * @param runningTimeout - The time (in milliseconds) a running game may go without any activity
+	 * @param endedTimeout - The time (in milliseconds) a table may stay after its game ended, without a rematch
+	 */
+	public TableReaper(Server server, long pendingTimeout, long runningTimeout, long endedTimeout) {
+		this.server = server;
+		this.pendingTimeout = pendingTimeout;
+		this.runningTimeout = runningTimeout;
+		this.endedTimeout = endedTimeout;
+		this.tracked = ConcurrentHashMap.newKeySet();
+		this.reapedTables = new LongAdder();
+		this.reapedClients = new LongAdder();
+		
+		/*
+		 * A hashed timer wheel - every slot holds the tables that are due on one tick.
+		 * Activity never moves a table between slots. A table that turns out to be active
+		 * when its slot comes up is simply put in a later slot, so tracking a table costs O(1).
+		 */
+		this.wheel = new ArrayList<Queue<OpenGame>>(WHEEL_SIZE);
+		for (int i = 0; i < WHEEL_SIZE; i++) wheel.add(new ConcurrentLinkedQueue<OpenGame>());
+	}
+	
+	/**
+	 * Start checking the tables once every tick.
+	 */
+	public void start() {
+		ticker = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "Table Reaper");
+			thread.setDaemon(true);
+			return thread;
+		});
+		
+		ticker.scheduleAtFixedRate(this, TICK, TICK, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Change the timeouts of the tables.
+	 * Tables that are already watched get the new timeouts the next time they're checked.
+	 * 
+	 * @param pendingTimeout - The time (in milliseconds) a table may wait for more clients, or 0 to keep it
+	 * @param runningTimeout - The time (in milliseconds) a running game may go without activity, or 0 to keep it
+	 * @param endedTimeout - The time (in milliseconds) a table may stay after its game ended, or 0 to keep it
+	 */
+	public void setTimeouts(long pendingTimeout, long runningTimeout, long endedTimeout) {
+		if (pendingTimeout > 0) this.pendingTimeout = pendingTimeout;
+		if (runningTimeout > 0) this.runningTimeout = runningTimeout;
+		if (endedTimeout > 0) this.endedTimeout = endedTimeout;
+	}
+	
+	/**
+	 * Start watching a table (nothing happens if it's already watched).
+	 * 
+	 * @param openGame - The table to watch
+	 */
+	public void track(OpenGame openGame) {
+		if (tracked.add(openGame)) schedule(openGame, System.currentTimeMillis());
+	}
+	
+	@Override
+	public void run() {
+		long now = System.currentTimeMillis();
+		Queue<OpenGame> slot = wheel.get((int) (currentTick % WHEEL_SIZE));
+		currentTick++;
+		
+		List<CompletableFuture<Integer>> evictions = new ArrayList<CompletableFuture<Integer>>();
+		OpenGame openGame;
+		
+		while ((openGame = slot.poll()) != null) {
+			//the table has been left by all of its clients - make sure the game service lets go of it as well
+			if (openGame.getSubscribersAmount() == 0) {
+				tracked.remove(openGame);
+				server.evict(openGame);
+				continue;
+			}
+			
+			if (now < deadlineOf(openGame)) schedule(openGame, now);
+			else {
+				tracked.remove(openGame);
+				evictions.add(server.evict(openGame));
+			}
+		}
+		
+		if (!evictions.isEmpty()) count(evictions);
+	}
+	
+	/**
+	 * Count the reaped tables and their clients, once all of them have been evicted.
+	 * 
+	 * @param evictions - The amount of clients evicted from each table
+	 */
+	private void count(List<CompletableFuture<Integer>> evictions) {
+		CompletableFuture.allOf(evictions.toArray(new CompletableFuture<?>[0])).thenRun(() -> {
+			int tables = evictions.size(), clients = 0;
+			for (CompletableFuture<Integer> eviction : evictions) clients += eviction.join();
+			
+			reapedTables.add(tables);
+			reapedClients.add(clients);
+			Logger.print("The reaper has reclaimed " + tables + " idle tables (" + clients + " clients).");
+		});
+	}
+	
+	/**
+	 * Put a table in the slot of the tick it's due on.
+	 * Tables that are due further than the wheel reaches are put in its farthest slot, and checked again then.
+	 */
+	private void schedule(OpenGame openGame, long now) {
+		long ticks = (deadlineOf(openGame) - now + TICK - 1) / TICK;
+		ticks = Math.max(1, Math.min(WHEEL_SIZE - 1, ticks));
+		wheel.get((int) ((currentTick + ticks) % WHEEL_SIZE)).add(openGame);
+	}
+	
+	/**
+	 * @param openGame - The table to check
+	 * @return the time the table will be reaped at, unless there's any activity before that.
+	 */
+	private long deadlineOf(OpenGame openGame) {
+		long timeout;
+		if (!openGame.canRun()) timeout = pendingTimeout;
+		else if (openGame.isRunning()) timeout = runningTimeout;
+		else timeout = endedTimeout;
+		
+		return openGame.getLastActivity() + timeout;
+	}
+	
+	/**
+	 * @param args - The arguments the server was launched with
+	 * @param state - The state of the tables the timeout applies to ("pending", "running" or "ended")
+	 * @return the timeout (in milliseconds) that the arguments ask for (--state-timeout=seconds),
+	 * 		   or 0 if they don't ask for one.
+	 */
+	public static long timeoutFromArgs(String[] args, String state) {
+		String prefix = "--" + state + "-timeout=";
+		
+		for (String arg : args)
+			if (arg.startsWith(prefix)) return TimeUnit.SECONDS.toMillis(Long.parseLong(arg.substring(prefix.length())));
+		
+		return 0;
+	}
+	
+	/**
+	 * @return the amount of tables that are watched.
+	 */
+	public int getTrackedAmount() { return tracked.size(); }
+	
+	/**
+	 * @return the amount of idle tables that have been reaped.
+	 */
+	public long getReapedTablesAmount() { return reapedTables.sum(); }
+	
+	/**
+	 * @return the amount of clients that have been evicted from idle tables.
+	 */
+	public long getReapedClientsAmount() { return reapedClients.sum(); }
+}
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.hit.server;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import javaNK.util.communication.JSON;
+
+public class TextCodec implements MessageCodec
+{
+	@Override
+	public void encode(JSON msg, ByteBuffer buffer) throws IOException {
+		try { buffer.put(msg.toString().getBytes(StandardCharsets.UTF_8)); }
+		catch (BufferOverflowException ex) { throw new IOException("The message " + msg + " is too long."); }
+	}
+	
+	@Override
+	public ByteBuffer encode(JSON msg) throws IOException {
+		return ByteBuffer.wrap(msg.toString().getBytes(StandardCharsets.UTF_8));
+	}
+	
+	@Override
+	public ByteBuffer encodeBatch(List<JSON> msgs) throws IOException {
+		JSON batch = new JSON("batch");
+		batch.put("messages", msgs.toArray(new JSON[msgs.size()]));
+		return encode(batch);
+	}
+	
+	@Override
+	public JSON decode(ByteBuffer buffer) throws IOException {
+		String text = StandardCharsets.UTF_8.decode(buffer).toString();
+		
+		try { return JSON.parse(text); }
+		catch (Exception ex) { throw new IOException("Could not parse the message " + text + "."); }
+	}
+}
\ No newline at end of file
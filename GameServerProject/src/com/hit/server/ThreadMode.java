@@ -0,0 +1,46 @@
+package com.hit.server;
+
+public enum ThreadMode
+{
+	PLATFORM,
+	VIRTUAL;
+	
+	/**
+	 * Run a task on a new thread of this mode.
+	 * 
+	 * @param task - The task to run
+	 * @param name - The name of the new thread
+	 * @return the thread that runs the task.
+	 */
+	public Thread start(Runnable task, String name) {
+		switch (this) {
+			case VIRTUAL: return Thread.ofVirtual().name(name).start(task);
+			default: return Thread.ofPlatform().name(name).start(task);
+		}
+	}
+	
+	/**
+	 * Run the loop of an engine on a thread of this mode.
+	 * An engine is always started by its own start(), which prepares it and runs its loop on a platform thread.
+	 * In the virtual mode that thread only hands the loop over to a virtual thread and ends right away,
+	 * so no platform thread is kept per engine.
+	 * 
+	 * @param loop - The loop to run
+	 * @param name - The name of a new thread, if the loop has to be handed over to one
+	 */
+	public void run(Runnable loop, String name) {
+		if (Thread.currentThread().isVirtual() == (this == VIRTUAL)) loop.run();
+		else start(loop, name);
+	}
+	
+	/**
+	 * @param args - The arguments the server was launched with
+	 * @return the thread mode that the arguments ask for.
+	 */
+	public static ThreadMode fromArgs(String[] args) {
+		for (String arg : args)
+			if (arg.equals("--virtual-threads")) return VIRTUAL;
+		
+		return PLATFORM;
+	}
+}
\ No newline at end of file
@@ -1,11 +1,14 @@
 package com.hit.services;
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 import com.hit.control.ClientIdentity;
 import com.hit.control.Game;
 import com.hit.control.OpenGame;
 import com.hit.exception.UnknownIdException;
+import com.hit.server.ClientHandler;
 import com.hit.server.Server;
 import game_algo.IGameAlgo.GameState;
 import javaNK.util.communication.JSON;
@@ -29,12 +32,13 @@ public class GameServerController
 	/**
 	 * Find a pending game for a client, or open a new game for him.
 	 * 
-	 * @param clientProt - The port of the client to add
+	 * @param clientInfo - The network information of the client to add
+	 * @param clientProt - The port of the client to add (null if the client is served by a shared channel)
 	 * @param game - The game the client wants to play
 	 * @param msg - The message the client sent to the server
 	 * @return the game that has been assigned to the client.
 	 */
-	public OpenGame addClient(Protocol clientProt, Game game, JSON msg) {
+	public OpenGame addClient(NetworkInformation clientInfo, Protocol clientProt, Game game, JSON msg) {
 		try {
 			boolean reserved = msg.getBoolean("reserved");
 			boolean singlePlayer = msg.getBoolean("single_player");
@@ -47,7 +51,7 @@ public class GameServerController
 			
 			String name = msg.getString("name");
 			String avatarID = msg.getString("avatar");
-			ClientIdentity id = new ClientIdentity(name, avatarID, clientProt, null, singlePlayer);
+			ClientIdentity id = new ClientIdentity(name, avatarID, clientInfo, clientProt, null, singlePlayer);
 			
 			return gameService.startGame(this, id, game, reservations, reserved);
 		}
@@ -75,16 +79,36 @@ public class GameServerController
 		OpenGame closedGame = gameService.getPlayedGame(clientInfo, game);
 		
 		//notify all players about unexpected end of the game
-		if (!expected && closedGame != null) {
-			JSON unexpecetedEnd = new JSON("end_game");
-			unexpecetedEnd.put("game", game.name());
-			unexpecetedEnd.put("state", GameState.IN_PROGRESS.name());
-			closedGame.notifyAll(unexpecetedEnd);
-		}
+		if (!expected && closedGame != null) closedGame.notifyAll(createUnexpectedEnd(game));
 		
 		return gameService.closeGame(clientInfo, game);
 	}
 	
+	/**
+	 * Close a whole game for all of its clients, even if they're in the middle of it.
+	 * Every client is told once that the game has ended unexpectedly.
+	 * 
+	 * @param openGame - The game to close
+	 * @return the clients that have been removed from the game.
+	 */
+	public Collection<ClientIdentity> closeGame(OpenGame openGame) {
+		//the game is paused first, so removing its clients doesn't announce a disconnection as well
+		openGame.pauseGame(true);
+		openGame.notifyAll(createUnexpectedEnd(openGame.getGame()));
+		return gameService.closeGame(openGame);
+	}
+	
+	/**
+	 * @param game - The game that has ended
+	 * @return a message that tells the clients their game has ended unexpectedly.
+	 */
+	private JSON createUnexpectedEnd(Game game) {
+		JSON unexpecetedEnd = new JSON("end_game");
+		unexpecetedEnd.put("game", game.name());
+		unexpecetedEnd.put("state", GameState.IN_PROGRESS.name());
+		return unexpecetedEnd;
+	}
+	
 	/**
 	 * Restart a game for a client
 	 * 
@@ -97,17 +121,29 @@ public class GameServerController
 	}
 	
 	/**
-	 * Notify a set of clients with a JSON message.
+	 * Create the handler that serves a client during a game.
 	 * 
-	 * @param protocols - A set of the clients' protocols
-	 * @param msg - The message to notify the clients with
+	 * @param openGame - The game the client is playing
+	 * @param id - The identity of the client
+	 * @param playerIndex - The index of the client (unique for every client of the open game)
+	 * @return a new handler for the client.
+	 * @throws IOException when the client's protocol is unavailable.
 	 */
-	public void notifySet(Set<Protocol> protocols, JSON msg) {
-		for (Protocol prot : protocols) {
-			try { server.notify(prot, msg); }
-			catch(IOException e) {
-				Logger.error(msg, "Could not contact the client " + prot.getRemoteNetworkInformation() + ".");
-			}
+	public ClientHandler createHandler(OpenGame openGame, ClientIdentity id, int playerIndex) throws IOException {
+		return server.createHandler(openGame, id, playerIndex);
+	}
+	
+	/**
+	 * Send a message to a group of clients.
+	 * 
+	 * @param targets - The addresses of the clients
+	 * @param exclude - One address to skip, or null to send to all of them
+	 * @param msg - The message to send
+	 */
+	public void broadcast(InetSocketAddress[] targets, InetSocketAddress exclude, JSON msg) {
+		try { server.broadcast(targets, exclude, msg); }
+		catch(IOException e) {
+			Logger.error(msg, "Could not contact all of the clients.");
 		}
 	}
 	
@@ -121,4 +157,26 @@ public class GameServerController
 	public boolean isAllowed(NetworkInformation clientInfo, Game game) {
 		return !gameService.isPlaying(clientInfo, game);
 	}
+	
+	/**
+	 * @return the amount of games that are open right now (running or not).
+	 */
+	public int getOpenGamesAmount() { return gameService.getOpenGamesAmount(); }
+	
+	/**
+	 * @param game - The game to count
+	 * @return the amount of open games of that type (running or not).
+	 */
+	public int getOpenGamesAmount(Game game) { return gameService.getOpenGamesAmount(game); }
+	
+	/**
+	 * @return the amount of open games that are still waiting for more clients.
+	 */
+	public int getPendingGamesAmount() { return gameService.getPendingGamesAmount(); }
+	
+	/**
+	 * @param game - The game to count
+	 * @return the amount of open games of that type that are still waiting for more clients.
+	 */
+	public int getPendingGamesAmount(Game game) { return gameService.getPendingGamesAmount(game); }
 }
\ No newline at end of file
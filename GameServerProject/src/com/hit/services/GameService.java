@@ -1,10 +1,9 @@
 package com.hit.services;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.hit.control.ClientIdentity;
 import com.hit.control.Game;
@@ -15,7 +14,9 @@ import javaNK.util.communication.NetworkInformation;
 public class GameService
 {
 	private Map<Game, Set<OpenGame>> openGames;
-	private Map<Game, Queue<OpenGame>> pendingGames;
+	private Matchmaker matchmaker;
+	private Map<Game, Map<NetworkInformation, OpenGame>> playedGames;
+	private Map<Game, Object> locks;
 	
 	public GameService() {
 		/*
@@ -25,18 +26,33 @@ public class GameService
 		
 		//initiate each game's set of open games
 		for (Game game : Game.values())
-			openGames.put(game, new HashSet<OpenGame>());
+			openGames.put(game, ConcurrentHashMap.newKeySet());
 		
 		/*
-		 * This data structure holds all the games that had been created
+		 * This component holds all the games that had been created
 		 * but not yet populated with enough clients to start.
-		 * Each game has a queue of open games, waiting to start.
 		 */
-		this.pendingGames = new HashMap<Game, Queue<OpenGame>>();
+		this.matchmaker = new Matchmaker();
 		
-		//initiate each game's queue of pending open games
+		/*
+		 * This data structure indexes every subscribed client by its network information,
+		 * so the open game a client is playing can be found without scanning all games.
+		 */
+		this.playedGames = new HashMap<Game, Map<NetworkInformation, OpenGame>>();
+		
+		//initiate each game's client index
 		for (Game game : Game.values())
-			pendingGames.put(game, new LinkedList<OpenGame>());
+			playedGames.put(game, new ConcurrentHashMap<NetworkInformation, OpenGame>());
+		
+		/*
+		 * Seating and removing clients is locked per game type,
+		 * so clients of different games never wait for each other.
+		 * The matchmaker's structures of each game are guarded by that game's lock as well.
+		 */
+		this.locks = new HashMap<Game, Object>();
+		
+		for (Game game : Game.values())
+			locks.put(game, new Object());
 	}
 	
 	/**
@@ -55,40 +71,36 @@ public class GameService
 	public OpenGame startGame(GameServerController controller, ClientIdentity id,
 							  Game game, Set<NetworkInformation> reservations,
 							  boolean reserved) throws UnknownIdException {
-		
-		//client is trying to open two instances of the same game
-		OpenGame playedGame = getPlayedGame(id.getProtocol().getRemoteNetworkInformation(), game);
-		if (playedGame != null) return playedGame;
-		
-		//find a pending game for the client
-		if (!id.isSociopath()) {
-			for (OpenGame pendingGame : pendingGames.get(game)) {
-				//there's a game that's waiting for this client
-				Set<NetworkInformation> pendingReservations = pendingGame.getReservations();
-				boolean inReservations = pendingReservations.contains(id.getProtocol().getRemoteNetworkInformation());
-				boolean waitedForClient = reserved && inReservations;
-				
-				//no one is waiting for this client - join a free for all game
-				boolean freeForAll = !reserved && pendingGame.getReservations().isEmpty();
+		synchronized (locks.get(game)) {
+			//client is trying to open two instances of the same game
+			NetworkInformation clientInfo = id.getClientInfo();
+			OpenGame playedGame = getPlayedGame(clientInfo, game);
+			if (playedGame != null) return playedGame;
+			
+			//find a pending game for the client
+			if (!id.isSociopath()) {
+				OpenGame pendingGame = matchmaker.find(game, clientInfo, reserved);
 				
-				if (waitedForClient || freeForAll) {
+				if (pendingGame != null) {
 					pendingGame.subscribe(id);
+					playedGames.get(game).put(clientInfo, pendingGame);
 					
 					//if done waiting for clients remove from pending list
-					if (pendingGame.canRun()) pendingGames.get(game).remove(pendingGame);
+					if (pendingGame.canRun()) matchmaker.unlist(pendingGame);
 					return pendingGame;
 				}
 			}
+			
+			//open a new game for the client
+			OpenGame newGame = new OpenGame(controller, game, reservations);
+			newGame.subscribe(id);
+			openGames.get(game).add(newGame);
+			playedGames.get(game).put(clientInfo, newGame);
+			
+			//make the new game available for other clients
+			if (!newGame.canRun()) matchmaker.list(newGame);
+			return newGame;
 		}
-		
-		//open a new game for the client
-		OpenGame newGame = new OpenGame(controller, game, reservations);
-		newGame.subscribe(id);
-		openGames.get(game).add(newGame);
-		
-		//add the new game to the correct pending queue
-		if (game.getGoalAmount() > 1) pendingGames.get(game).add(newGame);
-		return newGame;
 	}
 	
 	/**
@@ -101,33 +113,50 @@ public class GameService
 	 * @return the OpenGame object of the game that got closed (or just removed a subscriber).
 	 */
 	public OpenGame closeGame(NetworkInformation clientInfo, Game game) {
-		OpenGame playedGame = getPlayedGame(clientInfo, game);
-		Queue<OpenGame> pendingRemoval = new LinkedList<OpenGame>();
-		
-		//remove the client from the game he waited for (if needed)
-		for (OpenGame pendingGame : pendingGames.get(game)) {
-			pendingGame.removeClient(clientInfo);
+		synchronized (locks.get(game)) {
+			OpenGame playedGame = getPlayedGame(clientInfo, game);
 			
-			//delete open game if no clients are subscribed
-			if (pendingGame.getClients().isEmpty()) pendingRemoval.add(pendingGame);
-		}
-		
-		//remove them while iterating over a different data structure to avoid errors
-		while (!pendingRemoval.isEmpty()) {
-			OpenGame removedGame = pendingRemoval.poll();
-			pendingGames.get(game).remove(removedGame);
+			//close the game that the client was playing
+			if (playedGame != null) {
+				playedGame.removeClient(clientInfo);
+				playedGames.get(game).remove(clientInfo);
+				
+				//remove game if it contains no clients
+				if (playedGame.getClients().isEmpty()) {
+					openGames.get(game).remove(playedGame);
+					matchmaker.unlist(playedGame);
+					playedGame.release();
+				}
+			}
+			
+			return playedGame;
 		}
+	}
+	
+	/**
+	 * Close a game for all of its clients at once.
+	 * A game that no longer has any client is closed as well.
+	 * 
+	 * @param openGame - The game to close
+	 * @return the clients that have been removed from the game.
+	 */
+	public Collection<ClientIdentity> closeGame(OpenGame openGame) {
+		Game game = openGame.getGame();
 		
-		//close the game that the client was playing
-		if (playedGame != null) {
-			playedGame.removeClient(clientInfo);
+		synchronized (locks.get(game)) {
+			Collection<ClientIdentity> removed = openGame.getClients();
 			
-			//remove game if it contains no clients
-			if (playedGame.getClients().isEmpty())
-				openGames.get(game).remove(playedGame);
+			for (ClientIdentity id : removed) {
+				NetworkInformation clientInfo = id.getClientInfo();
+				openGame.removeClient(clientInfo);
+				playedGames.get(game).remove(clientInfo, openGame);
+			}
+			
+			openGames.get(game).remove(openGame);
+			matchmaker.unlist(openGame);
+			openGame.release();
+			return removed;
 		}
-		
-		return playedGame;
 	}
 	
 	/**
@@ -138,9 +167,11 @@ public class GameService
 	 * @return the game that has been restarted, or null if the game doesn't exist from the first place.
 	 */
 	public OpenGame reissue(NetworkInformation clientInfo, Game game) {
-		OpenGame openGame = getPlayedGame(clientInfo, game);
-		if (openGame != null) openGame.reissue();
-		return openGame;
+		synchronized (locks.get(game)) {
+			OpenGame openGame = getPlayedGame(clientInfo, game);
+			if (openGame != null) openGame.reissue();
+			return openGame;
+		}
 	}
 	
 	/**
@@ -162,9 +193,47 @@ public class GameService
 	 * @return the open game that the client is now playing 
 	 */
 	public OpenGame getPlayedGame(NetworkInformation clientInfo, Game game) {
+		return playedGames.get(game).get(clientInfo);
+	}
+	
+	/**
+	 * @return the amount of games that are open right now (running or not).
+	 */
+	public int getOpenGamesAmount() {
+		int amount = 0;
+		for (Game game : Game.values()) amount += getOpenGamesAmount(game);
+		return amount;
+	}
+	
+	/**
+	 * Count the open games of one type, without waiting for the seating of clients.
+	 * 
+	 * @param game - The game to count
+	 * @return the amount of open games of that type (running or not).
+	 */
+	public int getOpenGamesAmount(Game game) { return openGames.get(game).size(); }
+	
+	/**
+	 * @return the amount of open games that are still waiting for more clients.
+	 */
+	public int getPendingGamesAmount() {
+		int amount = 0;
+		for (Game game : Game.values()) amount += getPendingGamesAmount(game);
+		return amount;
+	}
+	
+	/**
+	 * Count the pending games of one type, without waiting for the seating of clients.
+	 * 
+	 * @param game - The game to count
+	 * @return the amount of open games of that type that are still waiting for more clients.
+	 */
+	public int getPendingGamesAmount(Game game) {
+		int amount = 0;
+		
 		for (OpenGame openGame : openGames.get(game))
-			if (openGame.hasClient(clientInfo)) return openGame;
+			if (!openGame.canRun()) amount++;
 		
-		return null;
+		return amount;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.hit.services;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.hit.control.Game;
+import com.hit.control.OpenGame;
+import javaNK.util.communication.NetworkInformation;
+
+public class Matchmaker
+{
+	private Map<Game, Set<OpenGame>> freeTables;
+	private Map<Game, Map<NetworkInformation, OpenGame>> reservedTables;
+	
+	public Matchmaker() {
+		/*
+		 * This data structure holds the pending games that anyone can join.
+		 * The sets keep their insertion order, so the oldest table is filled first.
+		 */
+		this.freeTables = new HashMap<Game, Set<OpenGame>>();
+		
+		for (Game game : Game.values())
+			freeTables.put(game, new LinkedHashSet<OpenGame>());
+		
+		/*
+		 * This data structure maps each invited client to the pending game
+		 * that holds a reserved spot for him.
+		 */
+		this.reservedTables = new HashMap<Game, Map<NetworkInformation, OpenGame>>();
+		
+		for (Game game : Game.values())
+			reservedTables.put(game, new HashMap<NetworkInformation, OpenGame>());
+	}
+	
+	/**
+	 * Find a pending game for a client.
+	 * 
+	 * @param game - The game the client wants to play
+	 * @param clientInfo - The network information of the client
+	 * @param reserved - True if the client has a reserved spot in a pending game
+	 * @return the pending game the client should join, or null if there is none.
+	 */
+	public OpenGame find(Game game, NetworkInformation clientInfo, boolean reserved) {
+		//look for the game that's waiting for this client
+		if (reserved) return reservedTables.get(game).remove(clientInfo);
+		
+		//no one is waiting for this client - join the oldest free for all game
+		Iterator<OpenGame> iterator = freeTables.get(game).iterator();
+		return iterator.hasNext() ? iterator.next() : null;
+	}
+	
+	/**
+	 * Make a pending game available for clients to join.
+	 * 
+	 * @param openGame - The pending game
+	 */
+	public void list(OpenGame openGame) {
+		Game game = openGame.getGame();
+		Set<NetworkInformation> reservations = openGame.getReservations();
+		
+		if (reservations.isEmpty()) freeTables.get(game).add(openGame);
+		else {
+			Map<NetworkInformation, OpenGame> index = reservedTables.get(game);
+			for (NetworkInformation clientInfo : reservations) index.put(clientInfo, openGame);
+		}
+	}
+	
+	/**
+	 * Stop offering a game to new clients (when it's full or closed).
+	 * 
+	 * @param openGame - The game to remove
+	 */
+	public void unlist(OpenGame openGame) {
+		Game game = openGame.getGame();
+		Set<NetworkInformation> reservations = openGame.getReservations();
+		
+		if (reservations.isEmpty()) freeTables.get(game).remove(openGame);
+		else {
+			Map<NetworkInformation, OpenGame> index = reservedTables.get(game);
+			for (NetworkInformation clientInfo : reservations) index.remove(clientInfo, openGame);
+		}
+	}
+}
\ No newline at end of file
@@ -66,6 +66,10 @@ public class CLI implements Runnable
 					
 					break;
 				}
+				case "METRICS": {
+					propertyChangeHandler.firePropertyChange("metrics", false, true);
+					break;
+				}
 				default: {
 					Logger.error("Unrecognized command.");
 					ThreadUtility.delay(50);
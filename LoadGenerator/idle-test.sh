@@ -0,0 +1,34 @@
+#!/bin/sh
+# Seat the same amount of idle clients on the server in each thread mode,
+# and log the server's seated clients, platform threads and heap as they grow.
+#
+# Usage: SERVER_CP=<server classes and libraries> ./idle-test.sh [clients] [seconds]
+# Every seated client holds a socket on both sides, so raise the open files limit (ulimit -n) first.
+
+CLIENTS=${1:-20000}
+DURATION=${2:-300}
+METRICS_PORT=9400
+HANDLERS=$((CLIENTS + CLIENTS / 4))
+
+if [ -z "$SERVER_CP" ]; then
+	echo "SERVER_CP must hold the class path of the server." >&2
+	exit 1
+fi
+
+for MODE in platform virtual; do
+	FLAGS="--metrics-port=$METRICS_PORT --max-handlers=$HANDLERS --running-timeout=$((DURATION * 2))"
+	[ "$MODE" = virtual ] && FLAGS="$FLAGS --virtual-threads"
+
+	#admit every client from the start, then keep the console open until the load is over
+	(printf 'GAME_SERVER_CONFIG\n%d\nSTART\n' "$CLIENTS"; sleep $((DURATION + 60))) |
+		java -cp "$SERVER_CP" com.hit.server.GameServerDriver $FLAGS > "server-$MODE.log" 2>&1 &
+	SERVER=$!
+	sleep 5
+
+	mvn -q exec:java -Dexec.args="--bots=$CLIENTS --idle=true --multiplayer=0 --think=0 \
+		--duration=$DURATION --ramp=$((DURATION / 3)) --metrics=http://localhost:$METRICS_PORT/metrics" \
+		| tee "idle-$MODE.log"
+
+	kill $SERVER
+	wait $SERVER 2>/dev/null
+done
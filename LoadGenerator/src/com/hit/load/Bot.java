@@ -0,0 +1,414 @@
+package com.hit.load;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ThreadLocalRandom;
+import javaNK.util.communication.JSON;
+import javaNK.util.communication.NetworkInformation;
+
+public class Bot implements Runnable
+{
+	private static final String TIC_TAC_TOE = "TIC_TAC_TOE";
+	private static final int BOARD_SIZE = 3;
+	private static final int MAX_MOVES = 200;
+	
+	private LoadConfig config;
+	private LoadReport report;
+	private long deadline, timeout;
+	private boolean paired;
+	private BotSocket seat, partnerSeat;
+	private long admissionStart;
+	
+	/**
+	 * @param config - The configuration of the load
+	 * @param report - The report that collects the round trips and the events
+	 * @param deadline - The time (in milliseconds since the epoch) to stop playing at
+	 * @param paired - True to play two clients against each other (in a reserved game),
+	 * 				   or false to play one client against the computer
+	 */
+	public Bot(LoadConfig config, LoadReport report, long deadline, boolean paired) {
+		this.config = config;
+		this.report = report;
+		this.deadline = deadline;
+		this.timeout = config.getTimeout();
+		this.paired = paired;
+	}
+	
+	@Override
+	public void run() {
+		try {
+			seat = new BotSocket(config.getServer());
+			if (paired) partnerSeat = new BotSocket(config.getServer());
+			
+			while (System.currentTimeMillis() < deadline) {
+				String game = config.randomGame();
+				
+				if (config.isIdle()) sitIdle(game);
+				else if (paired) playTogether(game);
+				else playAlone(game);
+				
+				report.count("sessions");
+				think();
+			}
+		}
+		catch (Exception ex) { report.count("errors"); }
+		finally {
+			if (seat != null) seat.close();
+			if (partnerSeat != null) partnerSeat.close();
+		}
+	}
+	
+	/**
+	 * Play one or more games against the computer, then leave.
+	 * 
+	 * @param game - The game to play
+	 * @throws IOException when the server is unreachable.
+	 */
+	private void playAlone(String game) throws IOException {
+		InetSocketAddress target = admit(seat, game, true, false, null);
+		if (target == null) return;
+		
+		long startTime = admissionStart;
+		boolean started = awaitStart(seat, "admission", startTime);
+		
+		while (started) {
+			report.count("games_started");
+			if (!playAgainstComputer(target, game)) break;
+			
+			report.count("games_finished");
+			if (System.currentTimeMillis() >= deadline || ThreadLocalRandom.current().nextDouble() >= config.getRematch()) break;
+			
+			//ask for another game on the same seat
+			think();
+			startTime = System.nanoTime();
+			seat.send(createServiceRequest("happy_client", seat, game), config.getServer());
+			started = awaitStart(seat, "rematch", startTime);
+		}
+		
+		leave(seat, game);
+	}
+	
+	/**
+	 * Take a seat against the computer, and keep it without playing until the load is over.
+	 * 
+	 * @param game - The game to sit at
+	 * @throws IOException when the server is unreachable.
+	 */
+	private void sitIdle(String game) throws IOException {
+		if (admit(seat, game, true, false, null) == null) return;
+		
+		if (awaitStart(seat, "admission", admissionStart)) {
+			report.count("idle_seats");
+			pause(deadline - System.currentTimeMillis());
+		}
+		
+		leave(seat, game);
+	}
+	
+	/**
+	 * Play one game between two clients, where the first client reserves a seat for the second.
+	 * 
+	 * @param game - The game to play
+	 * @throws IOException when the server is unreachable.
+	 */
+	private void playTogether(String game) throws IOException {
+		InetSocketAddress hostTarget = admit(seat, game, false, false, partnerSeat);
+		if (hostTarget == null) return;
+		long hostStart = admissionStart;
+		
+		InetSocketAddress guestTarget = admit(partnerSeat, game, false, true, null);
+		if (guestTarget == null) {
+			leave(seat, game);
+			return;
+		}
+		
+		long guestStart = admissionStart;
+		
+		//the start of the game carries each client's turn
+		JSON hostStartMsg = seat.await("start_game", timeout);
+		JSON guestStartMsg = partnerSeat.await("start_game", timeout);
+		
+		if (hostStartMsg == null || guestStartMsg == null) {
+			report.count("start_timeouts");
+			leave(seat, game);
+			leave(partnerSeat, game);
+			return;
+		}
+		
+		report.record("admission", System.nanoTime() - hostStart);
+		report.record("admission", System.nanoTime() - guestStart);
+		report.count("games_started");
+		seat.clearEndState();
+		partnerSeat.clearEndState();
+		
+		boolean hostTurn = hostStartMsg.getBoolean("turn");
+		BotSocket mover = hostTurn ? seat : partnerSeat, waiter = hostTurn ? partnerSeat : seat;
+		InetSocketAddress moverTarget = hostTurn ? hostTarget : guestTarget, waiterTarget = hostTurn ? guestTarget : hostTarget;
+		boolean[] taken = new boolean[BOARD_SIZE * BOARD_SIZE];
+		boolean finished = false;
+		
+		for (int moves = 0; moves < MAX_MOVES && !finished; moves++) {
+			//one of the clients walks away - the other one should be told
+			if (ThreadLocalRandom.current().nextDouble() < config.getChurn()) {
+				report.count("abandoned_games");
+				leave(mover, game);
+				if (waiter.await("end_game", timeout) == null) report.count("timeouts");
+				leave(waiter, game);
+				return;
+			}
+			
+			think();
+			if (game.equals(TIC_TAC_TOE) && isFull(taken)) break;
+			
+			long moveStart = System.nanoTime();
+			if (!playerMove(mover, moverTarget, game, taken)) break;
+			
+			//the other client sees the move
+			JSON echo = waiter.await("player2_move", timeout);
+			if (echo == null) {
+				report.count("timeouts");
+				break;
+			}
+			
+			report.record("partner_move", System.nanoTime() - moveStart);
+			mark(taken, echo);
+			
+			finished = mover.getEndState() != null || waiter.getEndState() != null || isOver(mover, moverTarget);
+			
+			//switch turns
+			BotSocket nextMover = waiter;
+			waiter = mover;
+			mover = nextMover;
+			InetSocketAddress nextTarget = waiterTarget;
+			waiterTarget = moverTarget;
+			moverTarget = nextTarget;
+		}
+		
+		report.count(finished ? "games_finished" : "unfinished_games");
+		leave(seat, game);
+		leave(partnerSeat, game);
+	}
+	
+	/**
+	 * Play a game against the computer until it's over.
+	 * 
+	 * @param target - The address of the port that serves the game
+	 * @param game - The game that's played
+	 * @return true if the game is over, or false if the bot should leave.
+	 * @throws IOException when the server is unreachable.
+	 */
+	private boolean playAgainstComputer(InetSocketAddress target, String game) throws IOException {
+		boolean[] taken = new boolean[BOARD_SIZE * BOARD_SIZE];
+		seat.clearEndState();
+		
+		for (int moves = 0; moves < MAX_MOVES; moves++) {
+			if (ThreadLocalRandom.current().nextDouble() < config.getChurn()) {
+				report.count("abandoned_games");
+				return false;
+			}
+			
+			think();
+			if (game.equals(TIC_TAC_TOE) && isFull(taken)) return isOver(seat, target);
+			if (!playerMove(seat, target, game, taken)) return false;
+			if (seat.getEndState() != null) return true;
+			
+			//the computer can't move on a full board
+			if (!game.equals(TIC_TAC_TOE) || !isFull(taken)) {
+				long startTime = System.nanoTime();
+				seat.send(new JSON("computer_move"), target);
+				JSON reply = seat.await("player2_move", timeout);
+				
+				if (reply == null) {
+					report.count("timeouts");
+					return false;
+				}
+				
+				report.record("computer_move", System.nanoTime() - startTime);
+				mark(taken, reply);
+				if (seat.getEndState() != null) return true;
+			}
+			
+			if (isOver(seat, target)) return true;
+		}
+		
+		report.count("unfinished_games");
+		return false;
+	}
+	
+	/**
+	 * Make a move for a client - on a free cell of tic tac toe, or a random move in any other game.
+	 * 
+	 * @param socket - The socket of the client
+	 * @param target - The address of the port that serves the game
+	 * @param game - The game that's played
+	 * @param taken - The cells of tic tac toe that are already taken
+	 * @return true if the server answered in time.
+	 * @throws IOException when the server is unreachable.
+	 */
+	private boolean playerMove(BotSocket socket, InetSocketAddress target, String game, boolean[] taken) throws IOException {
+		long startTime = System.nanoTime();
+		String type;
+		int cell = -1;
+		
+		if (game.equals(TIC_TAC_TOE)) {
+			cell = randomFreeCell(taken);
+			JSON request = new JSON(type = "player_move");
+			request.put("row", cell / BOARD_SIZE);
+			request.put("column", cell % BOARD_SIZE);
+			socket.send(request, target);
+		}
+		else socket.send(new JSON(type = "player_random"), target);
+		
+		JSON reply = socket.await(type, timeout);
+		if (reply == null) {
+			report.count("timeouts");
+			return false;
+		}
+		
+		report.record(type, System.nanoTime() - startTime);
+		
+		if (cell != -1) {
+			if (reply.getBoolean("success")) taken[cell] = true;
+			else report.count("illegal_moves");
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Ask the server if a game is over.
+	 * 
+	 * @param socket - The socket of the client
+	 * @param target - The address of the port that serves the game
+	 * @return true if the game is over (or the server didn't answer in time).
+	 * @throws IOException when the server is unreachable.
+	 */
+	private boolean isOver(BotSocket socket, InetSocketAddress target) throws IOException {
+		long startTime = System.nanoTime();
+		socket.send(new JSON("is_over"), target);
+		JSON reply = socket.await("is_over", timeout);
+		
+		if (reply == null) {
+			report.count("timeouts");
+			return true;
+		}
+		
+		report.record("is_over", System.nanoTime() - startTime);
+		return reply.getBoolean("over") || socket.getEndState() != null;
+	}
+	
+	/**
+	 * Ask the server for a seat in a game, and tell it the client is ready once it's seated.
+	 * 
+	 * @param socket - The socket of the client
+	 * @param game - The game to play
+	 * @param singlePlayer - True to play against the computer
+	 * @param reserved - True if another client has reserved a seat for this one
+	 * @param reservedSocket - The socket of a client to reserve a seat for, or null to reserve none
+	 * @return the address of the port that serves the game, or null if the client hasn't been seated.
+	 * @throws IOException when the server is unreachable.
+	 */
+	private InetSocketAddress admit(BotSocket socket, String game, boolean singlePlayer,
+									boolean reserved, BotSocket reservedSocket) throws IOException {
+		
+		JSON[] reservations = (reservedSocket != null) ? new JSON[] { reservedSocket.getClientInfo().composeJSON() }
+													   : new JSON[0];
+		
+		JSON request = createServiceRequest("new_client", socket, game);
+		request.put("reserved", reserved);
+		request.put("single_player", singlePlayer);
+		request.put("reservations", reservations);
+		request.put("name", "Bot " + socket.getClientInfo().getPort());
+		request.put("avatar", "0");
+		request.put("batching", config.isBatching());
+		request.put("handshake", true);
+		
+		admissionStart = System.nanoTime();
+		socket.send(request, config.getServer());
+		JSON reply = socket.await("new_client", timeout);
+		
+		if (reply == null) {
+			report.count("admission_timeouts");
+			return null;
+		}
+		else if (!reply.getBoolean("available")) {
+			report.count("rejections");
+			pause(reply.getInt("retry_after")); //the server tells when it's worth asking again
+			return null;
+		}
+		
+		report.record("new_client", System.nanoTime() - admissionStart);
+		
+		JSON ready = new JSON("client_ready");
+		ready.put("client", socket.getClientInfo().composeJSON());
+		socket.send(ready, config.getServer());
+		
+		NetworkInformation targetInfo = new NetworkInformation(reply);
+		return new InetSocketAddress(targetInfo.getIP(), targetInfo.getPort());
+	}
+	
+	/**
+	 * Wait for a game to start.
+	 * 
+	 * @param socket - The socket of the client
+	 * @param name - The name to record the time it took under
+	 * @param startTime - The time (from System.nanoTime()) the client asked for the game
+	 * @return true if the game has started in time.
+	 * @throws IOException when the socket is unavailable.
+	 */
+	private boolean awaitStart(BotSocket socket, String name, long startTime) throws IOException {
+		if (socket.await("start_game", timeout) == null) {
+			report.count("start_timeouts");
+			return false;
+		}
+		
+		report.record(name, System.nanoTime() - startTime);
+		return true;
+	}
+	
+	/**
+	 * Tell the server that a client is leaving his game.
+	 * 
+	 * @param socket - The socket of the client
+	 * @param game - The game the client is leaving
+	 * @throws IOException when the server is unreachable.
+	 */
+	private void leave(BotSocket socket, String game) throws IOException {
+		socket.send(createServiceRequest("leaving_client", socket, game), config.getServer());
+	}
+	
+	/**
+	 * @param type - The type of the request
+	 * @param socket - The socket of the client
+	 * @param game - The game the request is about
+	 * @return a request to the server's main port.
+	 */
+	private JSON createServiceRequest(String type, BotSocket socket, String game) {
+		JSON request = new JSON(type);
+		request.put("game", game);
+		request.put("client", socket.getClientInfo().composeJSON());
+		return request;
+	}
+	
+	private void mark(boolean[] taken, JSON move) {
+		int row = move.getInt("row"), col = move.getInt("column");
+		if (row >= 0 && row < BOARD_SIZE && col >= 0 && col < BOARD_SIZE) taken[row * BOARD_SIZE + col] = true;
+	}
+	
+	private boolean isFull(boolean[] taken) {
+		for (boolean cell : taken) if (!cell) return false;
+		return true;
+	}
+	
+	private int randomFreeCell(boolean[] taken) {
+		int cell = ThreadLocalRandom.current().nextInt(taken.length);
+		while (taken[cell]) cell = (cell + 1) % taken.length;
+		return cell;
+	}
+	
+	private void think() { pause(config.randomThinkTime()); }
+	
+	private void pause(long millis) {
+		try { if (millis > 0) Thread.sleep(millis); }
+		catch (InterruptedException ex) { Thread.currentThread().interrupt(); }
+	}
+}
\ No newline at end of file
@@ -0,0 +1,107 @@
+package com.hit.load;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import javaNK.util.communication.JSON;
+import javaNK.util.communication.NetworkInformation;
+
+public class BotSocket implements AutoCloseable
+{
+	private static final int PACKET_SIZE = 65507;
+	
+	private DatagramSocket socket;
+	private NetworkInformation clientInfo;
+	private byte[] inBuffer;
+	private Queue<JSON> pending;
+	private String endState;
+	
+	/**
+	 * @param server - The address of the server's main port
+	 * @throws IOException when no local port is available.
+	 */
+	public BotSocket(InetSocketAddress server) throws IOException {
+		//the server answers the address the bot introduces itself with
+		InetAddress localAddress = server.getAddress().isLoopbackAddress() ? InetAddress.getLoopbackAddress()
+																		   : InetAddress.getLocalHost();
+		
+		this.socket = new DatagramSocket(0);
+		this.clientInfo = new NetworkInformation(socket.getLocalPort(), localAddress);
+		this.inBuffer = new byte[PACKET_SIZE];
+		this.pending = new ArrayDeque<JSON>();
+	}
+	
+	/**
+	 * Send a message to the server.
+	 * 
+	 * @param msg - The message to send
+	 * @param target - The address of the server's port that serves the message
+	 * @throws IOException when the server is unreachable.
+	 */
+	public void send(JSON msg, InetSocketAddress target) throws IOException {
+		byte[] data = msg.toString().getBytes(StandardCharsets.UTF_8);
+		socket.send(new DatagramPacket(data, data.length, target));
+	}
+	
+	/**
+	 * Wait for a message of a specific type, and drop any other message on the way.
+	 * An end of the game is kept aside whenever it's received, so it can be checked later.
+	 * 
+	 * @param type - The type of the message to wait for
+	 * @param timeout - The time (in milliseconds) to wait before giving up
+	 * @return the message, or null if it didn't arrive in time.
+	 * @throws IOException when the socket is unavailable.
+	 */
+	public JSON await(String type, long timeout) throws IOException {
+		long deadline = System.currentTimeMillis() + timeout;
+		
+		while (true) {
+			JSON msg = pending.poll();
+			
+			if (msg == null) {
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) return null;
+				
+				DatagramPacket packet = new DatagramPacket(inBuffer, inBuffer.length);
+				socket.setSoTimeout((int) remaining);
+				
+				try { socket.receive(packet); }
+				catch (SocketTimeoutException ex) { return null; }
+				
+				msg = JSON.parse(new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8));
+			}
+			
+			//several answers to the same request arrive together if the bot asked for batches
+			if (msg.getType().equals("batch")) {
+				for (JSON batched : msg.getJSONArray("messages")) pending.add(batched);
+				continue;
+			}
+			
+			if (msg.getType().equals("end_game")) endState = msg.getString("state");
+			if (msg.getType().equals(type)) return msg;
+		}
+	}
+	
+	/**
+	 * @return the state the last game ended with, or null if it hasn't ended yet.
+	 */
+	public String getEndState() { return endState; }
+	
+	/**
+	 * Forget the end of the last game, before a new one starts.
+	 */
+	public void clearEndState() { endState = null; }
+	
+	/**
+	 * @return the network information the bot introduces itself with.
+	 */
+	public NetworkInformation getClientInfo() { return clientInfo; }
+	
+	@Override
+	public void close() { socket.close(); }
+}
\ No newline at end of file
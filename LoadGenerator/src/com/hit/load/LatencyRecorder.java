@@ -0,0 +1,83 @@
+package com.hit.load;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyRecorder
+{
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_EXPONENT = 40;
+	
+	/*
+	 * Latencies (in microseconds) are counted in buckets that grow with the value,
+	 * every power of 2 split into 8 equal buckets - so any value is kept within 12.5% of itself.
+	 */
+	private AtomicLongArray buckets;
+	private LongAdder count;
+	private AtomicLong max;
+	
+	public LatencyRecorder() {
+		this.buckets = new AtomicLongArray((MAX_EXPONENT + 1) * SUB_BUCKETS);
+		this.count = new LongAdder();
+		this.max = new AtomicLong();
+	}
+	
+	/**
+	 * Count one round trip.
+	 * 
+	 * @param nanos - The time (in nanoseconds) the round trip took
+	 */
+	public void record(long nanos) {
+		long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+		buckets.incrementAndGet(indexOf(micros));
+		count.increment();
+		max.accumulateAndGet(micros, Math::max);
+	}
+	
+	private static int indexOf(long micros) {
+		if (micros < SUB_BUCKETS) return (int) Math.max(0, micros);
+		
+		int exponent = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS + 1;
+		if (exponent > MAX_EXPONENT) return (MAX_EXPONENT + 1) * SUB_BUCKETS - 1;
+		
+		return exponent * SUB_BUCKETS + (int) (micros >>> (exponent - 1)) - SUB_BUCKETS;
+	}
+	
+	private static long highestOf(int index) {
+		int exponent = index / SUB_BUCKETS, subBucket = index % SUB_BUCKETS;
+		if (exponent == 0) return subBucket;
+		
+		return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - 1)) - 1;
+	}
+	
+	/**
+	 * @param percentile - The percentile to find (between 0 and 100)
+	 * @return the latency (in microseconds) that the given percentage of the round trips didn't exceed.
+	 */
+	public long getPercentile(double percentile) {
+		long amount = count.sum();
+		if (amount == 0) return 0;
+		
+		long rank = Math.max(1, (long) Math.ceil(amount * percentile / 100));
+		long seen = 0;
+		
+		for (int i = 0; i < buckets.length(); i++) {
+			seen += buckets.get(i);
+			if (seen >= rank) return Math.min(highestOf(i), max.get());
+		}
+		
+		return max.get();
+	}
+	
+	/**
+	 * @return the amount of recorded round trips.
+	 */
+	public long getCount() { return count.sum(); }
+	
+	/**
+	 * @return the longest round trip (in microseconds).
+	 */
+	public long getMax() { return max.get(); }
+}
\ No newline at end of file
@@ -0,0 +1,176 @@
+package com.hit.load;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import server_information.ServerData;
+
+public class LoadConfig
+{
+	private InetSocketAddress server;
+	private int bots;
+	private long duration, ramp, thinkTime, timeout;
+	private double churn, rematch, multiplayer;
+	private boolean batching, idle;
+	private String metrics;
+	private Map<String, Integer> gameMix;
+	private int mixWeight;
+	
+	private LoadConfig() {
+		this.server = new InetSocketAddress(ServerData.IP_ADDRESS, ServerData.PORT);
+		this.bots = 1000;
+		this.duration = 60;
+		this.ramp = 10;
+		this.thinkTime = 200;
+		this.timeout = 5000;
+		this.churn = 0.02;
+		this.rematch = 0.5;
+		this.multiplayer = 0.2;
+		this.gameMix = new LinkedHashMap<String, Integer>();
+		gameMix.put("TIC_TAC_TOE", 8);
+		gameMix.put("CATCH_THE_BUNNY", 2);
+		this.mixWeight = 10;
+	}
+	
+	/**
+	 * Read the configuration from the generator's arguments.
+	 * Every argument has the form --name=value, and anything that's left out keeps its default.
+	 * 
+	 * @param args - The arguments the generator was launched with
+	 * @return the configuration that the arguments ask for.
+	 * @throws UnknownHostException when the server's host is unknown.
+	 */
+	public static LoadConfig fromArgs(String[] args) throws UnknownHostException {
+		LoadConfig config = new LoadConfig();
+		
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+			if (!arg.startsWith("--") || separator < 0) throw new IllegalArgumentException("Unrecognized argument " + arg + ".");
+			
+			String value = arg.substring(separator + 1);
+			
+			switch (arg.substring(2, separator)) {
+				case "server": {
+					int colon = value.lastIndexOf(':');
+					InetAddress host = InetAddress.getByName(value.substring(0, colon));
+					config.server = new InetSocketAddress(host, Integer.parseInt(value.substring(colon + 1)));
+					break;
+				}
+				case "bots": config.bots = Integer.parseInt(value); break;
+				case "duration": config.duration = Long.parseLong(value); break;
+				case "ramp": config.ramp = Long.parseLong(value); break;
+				case "think": config.thinkTime = Long.parseLong(value); break;
+				case "timeout": config.timeout = Long.parseLong(value); break;
+				case "churn": config.churn = Double.parseDouble(value); break;
+				case "rematch": config.rematch = Double.parseDouble(value); break;
+				case "multiplayer": config.multiplayer = Double.parseDouble(value); break;
+				case "batching": config.batching = Boolean.parseBoolean(value); break;
+				case "idle": config.idle = Boolean.parseBoolean(value); break;
+				case "metrics": config.metrics = value; break;
+				case "games": {
+					config.gameMix.clear();
+					config.mixWeight = 0;
+					
+					for (String entry : value.split(",")) {
+						String[] parts = entry.split(":");
+						int weight = (parts.length > 1) ? Integer.parseInt(parts[1]) : 1;
+						config.gameMix.put(parts[0], weight);
+						config.mixWeight += weight;
+					}
+					
+					break;
+				}
+				default: throw new IllegalArgumentException("Unrecognized argument " + arg + ".");
+			}
+		}
+		
+		return config;
+	}
+	
+	/**
+	 * @return a game, chosen randomly by the weights of the game mix.
+	 */
+	public String randomGame() {
+		int choice = ThreadLocalRandom.current().nextInt(mixWeight);
+		
+		for (String game : gameMix.keySet()) {
+			choice -= gameMix.get(game);
+			if (choice < 0) return game;
+		}
+		
+		return gameMix.keySet().iterator().next();
+	}
+	
+	/**
+	 * @return a random think time (in milliseconds), between half and one and a half times the configured one.
+	 */
+	public long randomThinkTime() {
+		if (thinkTime <= 0) return 0;
+		return thinkTime / 2 + ThreadLocalRandom.current().nextLong(thinkTime + 1);
+	}
+	
+	/**
+	 * @return the address of the server's main port.
+	 */
+	public InetSocketAddress getServer() { return server; }
+	
+	/**
+	 * @return the amount of bots to simulate.
+	 */
+	public int getBots() { return bots; }
+	
+	/**
+	 * @return the time (in seconds) to keep the load on the server.
+	 */
+	public long getDuration() { return duration; }
+	
+	/**
+	 * @return the time (in seconds) it takes to bring all of the bots up.
+	 */
+	public long getRamp() { return ramp; }
+	
+	/**
+	 * @return the time (in milliseconds) to wait for any answer before giving up.
+	 */
+	public long getTimeout() { return timeout; }
+	
+	/**
+	 * @return the chance of a bot to leave in the middle of a game, before every move.
+	 */
+	public double getChurn() { return churn; }
+	
+	/**
+	 * @return the chance of a single player bot to ask for another game after one is over.
+	 */
+	public double getRematch() { return rematch; }
+	
+	/**
+	 * @return the part of the bots that play against each other (in reserved pairs).
+	 */
+	public double getMultiplayer() { return multiplayer; }
+	
+	/**
+	 * @return true if the bots ask the server to send the answers to one request in one datagram.
+	 */
+	public boolean isBatching() { return batching; }
+	
+	/**
+	 * @return true if the bots only take a seat against the computer and keep it until the end, without playing.
+	 */
+	public boolean isIdle() { return idle; }
+	
+	/**
+	 * @return the address of the server's metrics endpoint, or null if the server's metrics aren't followed.
+	 */
+	public String getMetrics() { return metrics; }
+	
+	@Override
+	public String toString() {
+		return "[Server: " + server + ", Bots: " + bots + ", Duration: " + duration + "s, Ramp: " + ramp + "s, "
+			 + "Think time: " + thinkTime + "ms, Churn: " + churn + ", Rematch: " + rematch + ", "
+			 + "Multiplayer: " + multiplayer + ", Batching: " + batching + ", Idle: " + idle + ", "
+			 + "Metrics: " + metrics + ", Games: " + gameMix + "]";
+	}
+}
\ No newline at end of file
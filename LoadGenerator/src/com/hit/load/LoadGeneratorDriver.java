@@ -0,0 +1,56 @@
+package com.hit.load;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class LoadGeneratorDriver
+{
+	private static final long PROGRESS_INTERVAL = 5;
+	
+	public static void main(String[] args) {
+		try {
+			LoadConfig config = LoadConfig.fromArgs(args);
+			System.err.println("Load Configuration: " + config);
+			
+			LoadReport report = new LoadReport();
+			long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(config.getDuration());
+			
+			//print the progress every few seconds
+			ServerProbe probe = (config.getMetrics() != null) ? new ServerProbe(config.getMetrics()) : null;
+			ScheduledExecutorService printer = Executors.newSingleThreadScheduledExecutor();
+			printer.scheduleAtFixedRate(() -> {
+				System.out.println(report);
+				if (probe != null) System.out.println(probe.read());
+			}, PROGRESS_INTERVAL, PROGRESS_INTERVAL, TimeUnit.SECONDS);
+			
+			/*
+			 * Every bot runs on a virtual thread of its own rather than on a platform thread.
+			 * A paired bot plays both clients of a reserved game, so it counts as two.
+			 */
+			int pairs = (int) Math.round(config.getBots() * config.getMultiplayer() / 2);
+			int units = config.getBots() - pairs;
+			long rampStep = TimeUnit.SECONDS.toNanos(config.getRamp()) / Math.max(1, units);
+			List<Thread> threads = new ArrayList<Thread>(units);
+			
+			for (int i = 0; i < units; i++) {
+				Bot bot = new Bot(config, report, deadline, i < pairs);
+				threads.add(Thread.ofVirtual().name("Bot " + i).start(bot));
+				if (rampStep > 0) TimeUnit.NANOSECONDS.sleep(rampStep);
+			}
+			
+			//give the last games a chance to end
+			for (Thread thread : threads) {
+				long remaining = deadline + config.getTimeout() * 2 - System.currentTimeMillis();
+				if (remaining > 0) thread.join(remaining);
+			}
+			
+			printer.shutdownNow();
+			System.out.println("Final Report:");
+			System.out.println(report);
+			System.exit(0);
+		}
+		catch (Exception ex) { ex.printStackTrace(); }
+	}
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.hit.load;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LoadReport
+{
+	private Map<String, LatencyRecorder> latencies;
+	private Map<String, LongAdder> counters;
+	private long startTime;
+	
+	public LoadReport() {
+		this.latencies = new ConcurrentSkipListMap<String, LatencyRecorder>();
+		this.counters = new ConcurrentSkipListMap<String, LongAdder>();
+		this.startTime = System.nanoTime();
+	}
+	
+	/**
+	 * Record the time a round trip took.
+	 * 
+	 * @param name - The name of the round trip (usually the request's type)
+	 * @param nanos - The time (in nanoseconds) it took
+	 */
+	public void record(String name, long nanos) {
+		latencies.computeIfAbsent(name, key -> new LatencyRecorder()).record(nanos);
+	}
+	
+	/**
+	 * Count one event.
+	 * 
+	 * @param name - The name of the event
+	 */
+	public void count(String name) {
+		counters.computeIfAbsent(name, key -> new LongAdder()).increment();
+	}
+	
+	/**
+	 * @return a readable snapshot of all of the round trips and events so far.
+	 */
+	@Override
+	public String toString() {
+		double elapsed = (System.nanoTime() - startTime) / 1e9;
+		StringBuilder builder = new StringBuilder();
+		
+		builder.append(String.format("After %.0f seconds:%n", elapsed));
+		
+		//latencies are in milliseconds
+		builder.append(String.format("%-16s %10s %9s %9s %9s %9s %9s %9s%n",
+									 "Round trip", "Count", "Rate/s", "P50", "P90", "P99", "P99.9", "Max"));
+		
+		for (Map.Entry<String, LatencyRecorder> entry : latencies.entrySet()) {
+			LatencyRecorder recorder = entry.getValue();
+			
+			builder.append(String.format("%-16s %10d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+										 entry.getKey(), recorder.getCount(), recorder.getCount() / elapsed,
+										 recorder.getPercentile(50) / 1e3, recorder.getPercentile(90) / 1e3,
+										 recorder.getPercentile(99) / 1e3, recorder.getPercentile(99.9) / 1e3,
+										 recorder.getMax() / 1e3));
+		}
+		
+		for (Map.Entry<String, LongAdder> entry : counters.entrySet())
+			builder.append(String.format("%-24s %10d%n", entry.getKey(), entry.getValue().sum()));
+		
+		return builder.toString();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.hit.load;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class ServerProbe
+{
+	private static final String PREFIX = "playertwo_";
+	private static final String[] GAUGES = { "seated_clients", "live_handlers", "platform_threads",
+											 "heap_used_bytes", "heap_committed_bytes" };
+	
+	private static final Duration TIMEOUT = Duration.ofSeconds(2);
+	
+	private HttpClient client;
+	private HttpRequest request;
+	
+	/**
+	 * @param endpoint - The address of the server's metrics endpoint (http://host:port/metrics)
+	 */
+	public ServerProbe(String endpoint) {
+		this.client = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+		this.request = HttpRequest.newBuilder(URI.create(endpoint)).timeout(TIMEOUT).GET().build();
+	}
+	
+	/**
+	 * Read the server's clients, threads and memory from its metrics endpoint.
+	 * 
+	 * @return a readable line of the server's gauges.
+	 */
+	public String read() {
+		Map<String, Double> values = new LinkedHashMap<String, Double>();
+		
+		try {
+			String body = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+			
+			for (String line : body.split("\n")) {
+				if (!line.startsWith(PREFIX)) continue;
+				
+				int space = line.indexOf(' ');
+				String name = line.substring(PREFIX.length(), space);
+				values.put(name, Double.parseDouble(line.substring(space + 1)));
+			}
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return "Server: unavailable";
+		}
+		catch (Exception ex) { return "Server: unavailable (" + ex.getMessage() + ")"; }
+		
+		StringBuilder builder = new StringBuilder("Server:");
+		for (String gauge : GAUGES) {
+			Double value = values.get(gauge);
+			
+			//memory is shown in megabytes
+			if (value == null) builder.append(' ').append(gauge).append("=?");
+			else if (gauge.endsWith("_bytes")) builder.append(String.format(" %s=%dMB", gauge.replace("_bytes", ""), value.longValue() >> 20));
+			else builder.append(String.format(" %s=%d", gauge, value.longValue()));
+		}
+		
+		return builder.toString();
+	}
+}
\ No newline at end of file
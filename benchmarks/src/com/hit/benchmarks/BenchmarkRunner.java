@@ -0,0 +1,89 @@
+package com.hit.benchmarks;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class BenchmarkRunner
+{
+	private static final String RESULTS_FOLDER = "results";
+	private static final String DEFAULT_INCLUDE = "com\\.hit\\..*Benchmark";
+	
+	/**
+	 * Run the benchmarks, and save their results as JSON, so two releases can be compared.
+	 * 
+	 * Arguments (all optional):
+	 * 	--include=regex      - Only run the benchmarks that match the expression
+	 * 	--label=name         - The name of the results file (usually the release), "latest" by default
+	 * 	--param=name:a,b     - Override the values of a parameter (may be repeated)
+	 * 	--prof=name[:config] - Attach a JMH profiler, like "gc" for the allocations of every operation (may be repeated)
+	 * Any other argument is passed to JMH as is (for example "-prof gc" or "-f 3").
+	 */
+	public static void main(String[] args) throws Exception {
+		String include = null;
+		String label = "latest";
+		List<String> jmhArgs = new ArrayList<String>();
+		List<String[]> params = new ArrayList<String[]>(), profilers = new ArrayList<String[]>();
+		
+		for (String arg : args) {
+			if (arg.startsWith("--include=")) include = arg.substring("--include=".length());
+			else if (arg.startsWith("--label=")) label = arg.substring("--label=".length());
+			else if (arg.startsWith("--param=")) {
+				String[] param = arg.substring("--param=".length()).split(":", 2);
+				if (param.length < 2 || param[0].isEmpty()) usage("The parameter " + arg + " should look like --param=name:a,b.");
+				params.add(param);
+			}
+			else if (arg.startsWith("--prof=")) {
+				String[] profiler = arg.substring("--prof=".length()).split(":", 2);
+				if (profiler[0].isEmpty()) usage("The profiler " + arg + " should look like --prof=name[:config].");
+				profilers.add(profiler);
+			}
+			else jmhArgs.add(arg);
+		}
+		
+		CommandLineOptions commandLine;
+		try { commandLine = new CommandLineOptions(jmhArgs.toArray(new String[jmhArgs.size()])); }
+		catch (CommandLineOptionException ex) {
+			usage(ex.getMessage());
+			return;
+		}
+		
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+		for (String[] param : params) options.param(param[0], param[1].split(","));
+		
+		for (String[] profiler : profilers) {
+			if (profiler.length > 1) options.addProfiler(profiler[0], profiler[1]);
+			else options.addProfiler(profiler[0]);
+		}
+		
+		//run every benchmark unless JMH has been given its own expressions
+		if (include != null) options.include(include);
+		else if (commandLine.getIncludes().isEmpty()) options.include(DEFAULT_INCLUDE);
+		
+		new File(RESULTS_FOLDER).mkdirs();
+		File results = new File(RESULTS_FOLDER, label + ".json");
+		
+		options.resultFormat(ResultFormatType.JSON)
+			   .result(results.getPath());
+		
+		new Runner(options.build()).run();
+		System.err.println("Results: " + results.getAbsolutePath());
+	}
+	
+	/**
+	 * Print what went wrong with the arguments, and stop.
+	 * 
+	 * @param problem - The problem with the arguments
+	 */
+	private static void usage(String problem) {
+		System.err.println(problem);
+		System.err.println("Usage: java -jar benchmarks.jar [--include=regex] [--label=name] [--param=name:a,b]... "
+						 + "[--prof=name[:config]]... [JMH options]");
+		System.exit(1);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,99 @@
+package com.hit.control;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import game_algo.GameBoard.GameMove;
+import game_algo.IGameAlgo.GameState;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardGameHandlerBenchmark
+{
+	private static final int OPENING_MOVES = 2;
+	private static final long MOVE_BUDGET = TimeUnit.MILLISECONDS.toNanos(200);
+	
+	@Param({ "TIC_TAC_TOE", "CATCH_THE_BUNNY" })
+	public String gameName;
+	
+	private Game game;
+	private BoardGameHandler handler;
+	private GameMove nextMove;
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		Game.warmUp();
+		game = Game.valueOf(gameName);
+		handler = new BoardGameHandler(game, game.getSmartModel());
+	}
+	
+	/*
+	 * The moving benchmarks change the board, so every invocation starts from a new game
+	 * with a few opening moves. Restarting the game isn't measured.
+	 * The moves take long enough (hundreds of nanoseconds or more) for a per-invocation setup to stay accurate.
+	 */
+	@Setup(Level.Invocation)
+	public void restart() {
+		if (!handler.reset(true)) {
+			handler.release();
+			handler = new BoardGameHandler(game, game.getSmartModel());
+		}
+		
+		for (int i = 0; i < OPENING_MOVES; i++) {
+			handler.randomMove(game.getPlayerSign(), 0);
+			handler.randomCompMove();
+		}
+		
+		int rows = game.getBoardSize().height, cols = game.getBoardSize().width;
+		nextMove = game.getMove(ThreadLocalRandom.current().nextInt(rows), ThreadLocalRandom.current().nextInt(cols));
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() { handler.release(); }
+	
+	/**
+	 * On catch the bunny the move is random, so it measures the validation of illegal moves as well.
+	 */
+	@Benchmark
+	public boolean updatePlayerMove() {
+		return handler.updatePlayerMove(nextMove, game.getPlayerSign(), 0);
+	}
+	
+	@Benchmark
+	public GameMove calcComputerMove() {
+		return handler.calcComputerMove(game.getComputerSign(), System.nanoTime() + MOVE_BUDGET);
+	}
+	
+	@Benchmark
+	public GameMove randomMove() {
+		return handler.randomMove(game.getPlayerSign(), 0);
+	}
+	
+	@Benchmark
+	public GameMove randomCompMove() {
+		return handler.randomCompMove();
+	}
+	
+	/**
+	 * Every invocation checks a board that has just changed, the way a check follows every move.
+	 */
+	@Benchmark
+	public GameState getGameState() {
+		return handler.getGameState(game.getPlayerSign(), 0);
+	}
+}
\ No newline at end of file
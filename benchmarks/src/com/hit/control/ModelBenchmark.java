@@ -0,0 +1,61 @@
+package com.hit.control;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import game_algo.GameBoard;
+import game_algo.IGameAlgo;
+import games.CatchTheBunnySmart;
+import games.TicTacToeSmart;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark
+{
+	@Param({ "TIC_TAC_TOE", "CATCH_THE_BUNNY" })
+	public String gameName;
+	
+	private Game game;
+	private ModelPool emptyPool;
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		Game.warmUp();
+		game = Game.valueOf(gameName);
+		
+		//a pool that's never given a model back builds a new one every time
+		Class<? extends GameBoard> smartClass = (game == Game.TIC_TAC_TOE) ? TicTacToeSmart.class : CatchTheBunnySmart.class;
+		emptyPool = new ModelPool(smartClass, 1, false);
+	}
+	
+	/**
+	 * The path every new table takes - a model from the game's pool, returned when the game is over.
+	 */
+	@Benchmark
+	public IGameAlgo getSmartModel() {
+		IGameAlgo model = game.getSmartModel();
+		game.releaseSmartModel(model);
+		return model;
+	}
+	
+	/**
+	 * The cost of building a model, when the pool is empty.
+	 */
+	@Benchmark
+	public IGameAlgo constructSmartModel() {
+		return emptyPool.acquire();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.hit.control;
+import java.net.InetAddress;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.hit.exception.UnknownIdException;
+import com.hit.services.StubController;
+import javaNK.util.communication.JSON;
+import javaNK.util.communication.NetworkInformation;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpenGameBenchmark
+{
+	private static final int FIRST_PORT = 20000;
+	
+	@Param({ "TIC_TAC_TOE", "CATCH_THE_BUNNY" })
+	public String gameName;
+	
+	private OpenGame openGame;
+	private NetworkInformation firstClient;
+	private JSON move;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws UnknownIdException {
+		Game game = Game.valueOf(gameName);
+		openGame = new OpenGame(new StubController(), game, new HashSet<NetworkInformation>());
+		
+		//two human clients fill the game
+		for (int i = 0; i < game.getGoalAmount(); i++) {
+			NetworkInformation clientInfo = new NetworkInformation(FIRST_PORT + i, InetAddress.getLoopbackAddress());
+			openGame.subscribe(new ClientIdentity("Client " + i, "0", clientInfo, null, null, false));
+			if (i == 0) firstClient = clientInfo;
+		}
+		
+		move = new JSON("player2_move");
+		move.put("row", 1);
+		move.put("column", 1);
+	}
+	
+	@Benchmark
+	public void notifyOthers() {
+		openGame.notifyOthers(firstClient, move);
+	}
+	
+	@Benchmark
+	public void notifyEveryone() {
+		openGame.notifyAll(move);
+	}
+	
+	@Benchmark
+	public Set<NetworkInformation> getAllClientsInfo() {
+		return openGame.getAllClientsInfo();
+	}
+	
+	@Benchmark
+	public Collection<ClientIdentity> getClients() {
+		return openGame.getClients();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.hit.control;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark
+{
+	private static final int SIZE = 3;
+	
+	/**
+	 * The amount of signs on the board before the search.
+	 */
+	@Param({ "0", "2", "4" })
+	public int filledCells;
+	
+	private LineRules rules;
+	private SearchEngine engine;
+	private MoveBook book;
+	private byte[] cells;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		rules = new LineRules(SIZE);
+		engine = new SearchEngine(rules, 9, 100, 16);
+		
+		File bookFile = new File(Files.createTempDirectory("book").toFile(), "tic_tac_toe.book");
+		book = MoveBook.load(bookFile, SIZE, rules);
+		
+		//the players take the cells in order, starting with the player
+		cells = new byte[SIZE * SIZE];
+		
+		for (int i = 0; i < cells.length; i++) {
+			boolean filled = i < filledCells;
+			boolean player = i % 2 == 0;
+			cells[i] = !filled ? SearchRules.EMPTY : player ? SearchRules.OPPONENT : SearchRules.ENGINE;
+		}
+	}
+	
+	/**
+	 * A fresh engine every time, so the transposition table doesn't answer from the last search.
+	 */
+	@Benchmark
+	public int coldSearch() {
+		return new SearchEngine(rules, 9, 100, 16).findMove(cells);
+	}
+	
+	@Benchmark
+	public int warmSearch() {
+		return engine.findMove(cells);
+	}
+	
+	@Benchmark
+	public int bookLookup() {
+		return book.lookup(cells);
+	}
+}
\ No newline at end of file
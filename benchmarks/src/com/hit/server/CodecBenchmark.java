@@ -0,0 +1,68 @@
+package com.hit.server;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import javaNK.util.communication.JSON;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark
+{
+	private static final int PACKET_SIZE = 65507;
+	
+	@Param({ "json", "binary" })
+	public String encoding;
+	
+	private MessageCodec serverCodec, clientCodec;
+	private JSON reply, request;
+	private ByteBuffer buffer, encodedRequest;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		boolean binary = encoding.equals(BinaryCodec.ENCODING);
+		serverCodec = binary ? new BinaryCodec(true) : new TextCodec();
+		clientCodec = binary ? new BinaryCodec(false) : new TextCodec();
+		buffer = ByteBuffer.allocateDirect(PACKET_SIZE);
+		
+		reply = new JSON("player2_move");
+		reply.put("row", 1);
+		reply.put("column", 2);
+		
+		request = new JSON("player_move");
+		request.put("row", 1);
+		request.put("column", 2);
+		encodedRequest = clientCodec.encode(request);
+	}
+	
+	/**
+	 * Encode a reply into the transport's own buffer, the way every reply is sent.
+	 */
+	@Benchmark
+	public ByteBuffer encodeReply() throws IOException {
+		buffer.clear();
+		serverCodec.encode(reply, buffer);
+		return buffer;
+	}
+	
+	@Benchmark
+	public JSON decodeRequest() throws IOException {
+		encodedRequest.rewind();
+		return serverCodec.decode(encodedRequest);
+	}
+}
\ No newline at end of file
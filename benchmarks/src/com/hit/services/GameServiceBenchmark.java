@@ -0,0 +1,128 @@
+package com.hit.services;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import com.hit.control.ClientIdentity;
+import com.hit.control.Game;
+import com.hit.control.OpenGame;
+import com.hit.exception.UnknownIdException;
+import javaNK.util.communication.NetworkInformation;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameServiceBenchmark
+{
+	@Param({ "TIC_TAC_TOE", "CATCH_THE_BUNNY" })
+	public String gameName;
+	
+	/**
+	 * The amount of tables that are already open.
+	 */
+	@Param({ "100", "1000", "10000" })
+	public int tables;
+	
+	private Game game;
+	private GameService gameService;
+	private StubController controller;
+	private NetworkInformation[] seatedClients;
+	private Set<OpenGame> openTables;
+	private ClientIdentity newcomer;
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		Game.warmUp();
+		game = Game.valueOf(gameName);
+		gameService = new GameService();
+		controller = new StubController();
+		
+		//every table is filled by one client that plays against the computer
+		seatedClients = new NetworkInformation[tables];
+		openTables = new HashSet<OpenGame>();
+		
+		for (int i = 0; i < tables; i++) {
+			ClientIdentity id = StubController.createIdentity(i, true);
+			seatedClients[i] = id.getClientInfo();
+			openTables.add(controller.seat(gameService, id, game));
+		}
+		
+		newcomer = StubController.createIdentity(tables, true);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		for (NetworkInformation clientInfo : seatedClients)
+			gameService.closeGame(clientInfo, game);
+	}
+	
+	/**
+	 * Seat one more client, and take him out again (outside of the measurement).
+	 */
+	@State(Scope.Thread)
+	public static class Seating
+	{
+		@TearDown(Level.Invocation)
+		public void tearDown(GameServiceBenchmark benchmark) {
+			benchmark.gameService.closeGame(benchmark.newcomer.getClientInfo(), benchmark.game);
+		}
+	}
+	
+	/**
+	 * Seat one more client before the measurement, so there's a table to close.
+	 */
+	@State(Scope.Thread)
+	public static class Leaving
+	{
+		@Setup(Level.Invocation)
+		public void setUp(GameServiceBenchmark benchmark) {
+			benchmark.controller.seat(benchmark.gameService, benchmark.newcomer, benchmark.game);
+		}
+	}
+	
+	@Benchmark
+	public OpenGame startGame(Seating seating) throws UnknownIdException {
+		return gameService.startGame(controller, newcomer, game, StubController.NO_RESERVATIONS, false);
+	}
+	
+	@Benchmark
+	public OpenGame closeGame(Leaving leaving) {
+		return gameService.closeGame(newcomer.getClientInfo(), game);
+	}
+	
+	@Benchmark
+	public OpenGame getPlayedGame() {
+		NetworkInformation clientInfo = seatedClients[ThreadLocalRandom.current().nextInt(tables)];
+		return gameService.getPlayedGame(clientInfo, game);
+	}
+	
+	/**
+	 * The lookup as it was before the client index - scan the set of open tables until one has the client.
+	 * It's the baseline of getPlayedGame().
+	 */
+	@Benchmark
+	public OpenGame scanPlayedGame() {
+		NetworkInformation clientInfo = seatedClients[ThreadLocalRandom.current().nextInt(tables)];
+		
+		for (OpenGame openGame : openTables)
+			if (openGame.hasClient(clientInfo)) return openGame;
+		
+		return null;
+	}
+}
\ No newline at end of file
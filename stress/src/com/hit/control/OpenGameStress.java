@@ -0,0 +1,47 @@
+package com.hit.control;
+import java.util.Collections;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+import com.hit.exception.UnknownIdException;
+import com.hit.services.StubController;
+
+/*
+ * A client subscribes to a table at the same moment its other client is removed from it
+ * (straight through the table, without passing through the game service).
+ * Result: subscribers amount, clients of the table.
+ */
+@JCStressTest
+@Outcome(id = "1, 1", expect = Expect.ACCEPTABLE, desc = "Only the newcomer is left, and the counts agree.")
+@Outcome(expect = Expect.FORBIDDEN, desc = "The subscribers amount and the clients of the table disagree.")
+@State
+public class OpenGameStress
+{
+	private OpenGame openGame;
+	private ClientIdentity leaving, newcomer;
+	
+	public OpenGameStress() {
+		try { this.openGame = new OpenGame(new StubController(), Game.TIC_TAC_TOE, Collections.emptySet()); }
+		catch (UnknownIdException ex) { throw new IllegalStateException(ex); }
+		
+		this.leaving = StubController.createIdentity(0, false);
+		this.newcomer = StubController.createIdentity(1, false);
+		openGame.subscribe(leaving);
+	}
+	
+	@Actor
+	public void subscribe() { openGame.subscribe(newcomer); }
+	
+	@Actor
+	public void remove() { openGame.removeClient(leaving.getClientInfo()); }
+	
+	@Arbiter
+	public void check(II_Result result) {
+		result.r1 = openGame.getSubscribersAmount();
+		result.r2 = openGame.getClients().size();
+	}
+}
\ No newline at end of file
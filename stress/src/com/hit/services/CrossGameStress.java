@@ -0,0 +1,46 @@
+package com.hit.services;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+import com.hit.control.ClientIdentity;
+import com.hit.control.Game;
+
+/*
+ * A client joins one game type while a client of another type leaves,
+ * each under the lock of its own game type.
+ * Result: open tic tac toe tables, open catch the bunny tables.
+ */
+@JCStressTest
+@Outcome(id = "1, 0", expect = Expect.ACCEPTABLE, desc = "Both changes have been applied.")
+@Outcome(expect = Expect.FORBIDDEN, desc = "One of the changes was lost.")
+@State
+public class CrossGameStress
+{
+	private GameService gameService;
+	private StubController controller;
+	private ClientIdentity joining, leaving;
+	
+	public CrossGameStress() {
+		this.gameService = new GameService();
+		this.controller = new StubController();
+		this.joining = StubController.createIdentity(0, true);
+		this.leaving = StubController.createIdentity(1, true);
+		controller.seat(gameService, leaving, Game.CATCH_THE_BUNNY).start();
+	}
+	
+	@Actor
+	public void join() { controller.seat(gameService, joining, Game.TIC_TAC_TOE); }
+	
+	@Actor
+	public void leave() { gameService.closeGame(leaving.getClientInfo(), Game.CATCH_THE_BUNNY); }
+	
+	@Arbiter
+	public void check(II_Result result) {
+		result.r1 = gameService.getOpenGamesAmount(Game.TIC_TAC_TOE);
+		result.r2 = gameService.getOpenGamesAmount(Game.CATCH_THE_BUNNY);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.hit.services;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+import com.hit.control.ClientIdentity;
+import com.hit.control.Game;
+import com.hit.control.OpenGame;
+
+/*
+ * A client's handler dies at the same moment the reaper closes his table.
+ * A dead handler removes its client through the game service, like the server's dismissal does
+ * (it used to remove him straight from the table, which left him indexed as playing).
+ * Result: open tables, clients that are still indexed as playing.
+ */
+@JCStressTest
+@Outcome(id = "0, 0", expect = Expect.ACCEPTABLE, desc = "The table has been closed, and both clients are gone.")
+@Outcome(expect = Expect.FORBIDDEN, desc = "The table, or one of the clients, was left behind.")
+@State
+public class HandlerDeathStress
+{
+	private static final Game GAME = Game.TIC_TAC_TOE;
+	
+	private GameService gameService;
+	private OpenGame table;
+	private ClientIdentity dying, partner;
+	
+	public HandlerDeathStress() {
+		this.gameService = new GameService();
+		this.dying = StubController.createIdentity(0, false);
+		this.partner = StubController.createIdentity(1, false);
+		
+		StubController controller = new StubController();
+		controller.seat(gameService, dying, GAME);
+		this.table = controller.seat(gameService, partner, GAME);
+		table.start();
+	}
+	
+	@Actor
+	public void die() { gameService.closeGame(dying.getClientInfo(), GAME); }
+	
+	@Actor
+	public void reap() { gameService.closeGame(table); }
+	
+	@Arbiter
+	public void check(II_Result result) {
+		result.r1 = gameService.getOpenGamesAmount(GAME);
+		result.r2 = (gameService.isPlaying(dying.getClientInfo(), GAME) ? 1 : 0)
+				  + (gameService.isPlaying(partner.getClientInfo(), GAME) ? 1 : 0);
+	}
+}
\ No newline at end of file
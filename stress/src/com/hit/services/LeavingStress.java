@@ -0,0 +1,50 @@
+package com.hit.services;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+import com.hit.control.ClientIdentity;
+import com.hit.control.Game;
+
+/*
+ * Both clients of a running table leave at the same moment
+ * (this used to throw a ConcurrentModificationException in closeGame).
+ * Result: open tables, clients that are still indexed as playing.
+ */
+@JCStressTest
+@Outcome(id = "0, 0", expect = Expect.ACCEPTABLE, desc = "The table has been closed, and both clients are gone.")
+@Outcome(expect = Expect.FORBIDDEN, desc = "The table, or one of the clients, was left behind.")
+@State
+public class LeavingStress
+{
+	private static final Game GAME = Game.TIC_TAC_TOE;
+	
+	private GameService gameService;
+	private ClientIdentity first, second;
+	
+	public LeavingStress() {
+		this.gameService = new GameService();
+		this.first = StubController.createIdentity(0, false);
+		this.second = StubController.createIdentity(1, false);
+		
+		StubController controller = new StubController();
+		controller.seat(gameService, first, GAME);
+		controller.seat(gameService, second, GAME).start();
+	}
+	
+	@Actor
+	public void leaveFirst() { gameService.closeGame(first.getClientInfo(), GAME); }
+	
+	@Actor
+	public void leaveSecond() { gameService.closeGame(second.getClientInfo(), GAME); }
+	
+	@Arbiter
+	public void check(II_Result result) {
+		result.r1 = gameService.getOpenGamesAmount(GAME);
+		result.r2 = (gameService.isPlaying(first.getClientInfo(), GAME) ? 1 : 0)
+				  + (gameService.isPlaying(second.getClientInfo(), GAME) ? 1 : 0);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,51 @@
+package com.hit.services;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+import com.hit.control.ClientIdentity;
+import com.hit.control.Game;
+import com.hit.control.OpenGame;
+
+/*
+ * A client leaves a pending table at the same moment another client comes to join it.
+ * Whichever comes first, the newcomer ends up alone at one open table.
+ * Result: open tables, subscribers of the newcomer's table.
+ */
+@JCStressTest
+@Outcome(id = "1, 1", expect = Expect.ACCEPTABLE, desc = "The newcomer is alone at the only open table.")
+@Outcome(expect = Expect.FORBIDDEN, desc = "A table was left behind, or the newcomer was lost.")
+@State
+public class SeatLeavingStress
+{
+	private static final Game GAME = Game.TIC_TAC_TOE;
+	
+	private GameService gameService;
+	private StubController controller;
+	private ClientIdentity leaving, newcomer;
+	
+	public SeatLeavingStress() {
+		this.gameService = new GameService();
+		this.controller = new StubController();
+		this.leaving = StubController.createIdentity(0, false);
+		this.newcomer = StubController.createIdentity(1, false);
+		controller.seat(gameService, leaving, GAME);
+	}
+	
+	@Actor
+	public void leave() { gameService.closeGame(leaving.getClientInfo(), GAME); }
+	
+	@Actor
+	public void join() { controller.seat(gameService, newcomer, GAME); }
+	
+	@Arbiter
+	public void check(II_Result result) {
+		OpenGame table = gameService.getPlayedGame(newcomer.getClientInfo(), GAME);
+		
+		result.r1 = gameService.getOpenGamesAmount(GAME);
+		result.r2 = (table != null) ? table.getSubscribersAmount() : 0;
+	}
+}
\ No newline at end of file
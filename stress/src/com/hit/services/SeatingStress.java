@@ -0,0 +1,50 @@
+package com.hit.services;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+import com.hit.control.ClientIdentity;
+import com.hit.control.Game;
+import com.hit.control.OpenGame;
+
+/*
+ * Two clients ask for the same game at the same moment.
+ * Result: open tables, subscribers of the table they share.
+ */
+@JCStressTest
+@Outcome(id = "1, 2", expect = Expect.ACCEPTABLE, desc = "Both clients share one table.")
+@Outcome(expect = Expect.FORBIDDEN, desc = "The clients got separate tables, or one of them was lost.")
+@State
+public class SeatingStress
+{
+	private static final Game GAME = Game.TIC_TAC_TOE;
+	
+	private GameService gameService;
+	private StubController controller;
+	private ClientIdentity first, second;
+	
+	public SeatingStress() {
+		this.gameService = new GameService();
+		this.controller = new StubController();
+		this.first = StubController.createIdentity(0, false);
+		this.second = StubController.createIdentity(1, false);
+	}
+	
+	@Actor
+	public void seatFirst() { controller.seat(gameService, first, GAME); }
+	
+	@Actor
+	public void seatSecond() { controller.seat(gameService, second, GAME); }
+	
+	@Arbiter
+	public void check(II_Result result) {
+		OpenGame firstTable = gameService.getPlayedGame(first.getClientInfo(), GAME);
+		OpenGame secondTable = gameService.getPlayedGame(second.getClientInfo(), GAME);
+		
+		result.r1 = gameService.getOpenGamesAmount(GAME);
+		result.r2 = (firstTable != null && firstTable == secondTable) ? firstTable.getSubscribersAmount() : 0;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.hit.services;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import com.hit.control.ClientIdentity;
+import com.hit.control.Game;
+import com.hit.control.OpenGame;
+import com.hit.exception.UnknownIdException;
+import com.hit.server.ClientHandler;
+import javaNK.util.communication.JSON;
+import javaNK.util.communication.NetworkInformation;
+
+public class StubController extends GameServerController
+{
+	public static final Set<NetworkInformation> NO_RESERVATIONS = Collections.emptySet();
+	private static final int FIRST_PORT = 1024;
+	
+	private LongAdder fanOut;
+	
+	/*
+	 * A controller without a server behind it.
+	 * Clients are served by stub handlers, and messages are only counted, so no socket is ever opened.
+	 */
+	public StubController() {
+		super(null);
+		this.fanOut = new LongAdder();
+	}
+	
+	@Override
+	public ClientHandler createHandler(OpenGame openGame, ClientIdentity id, int playerIndex) {
+		return new StubHandler(openGame, id.getClientInfo(), playerIndex);
+	}
+	
+	@Override
+	public void broadcast(InetSocketAddress[] targets, InetSocketAddress exclude, JSON msg) {
+		for (InetSocketAddress target : targets)
+			if (!target.equals(exclude)) fanOut.increment();
+	}
+	
+	/**
+	 * Seat a client that isn't invited to any table.
+	 * 
+	 * @param gameService - The service to seat the client through
+	 * @param id - The identity of the client
+	 * @param game - The game the client wants to play
+	 * @return the table the client has been seated at.
+	 */
+	public OpenGame seat(GameService gameService, ClientIdentity id, Game game) {
+		try { return gameService.startGame(this, id, game, NO_RESERVATIONS, false); }
+		catch (UnknownIdException ex) { throw new IllegalStateException(ex); }
+	}
+	
+	/**
+	 * @return the amount of clients that all of the broadcasts have been addressed to.
+	 */
+	public long getFanOutAmount() { return fanOut.sum(); }
+	
+	/**
+	 * @param index - The index of the client (every index gets its own port)
+	 * @return the network information of the client.
+	 */
+	public static NetworkInformation createClientInfo(int index) {
+		return new NetworkInformation(FIRST_PORT + index, InetAddress.getLoopbackAddress());
+	}
+	
+	/**
+	 * @param index - The index of the client (every index gets its own port)
+	 * @param singlePlayer - True if the client plays against the computer
+	 * @return a new identity of the client.
+	 */
+	public static ClientIdentity createIdentity(int index, boolean singlePlayer) {
+		NetworkInformation clientInfo = createClientInfo(index);
+		return new ClientIdentity("Client " + clientInfo.getPort(), "0", clientInfo, null, null, singlePlayer);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,69 @@
+package com.hit.services;
+import java.util.concurrent.atomic.LongAdder;
+import com.hit.control.BoardGameHandler;
+import com.hit.control.Game;
+import com.hit.control.OpenGame;
+import com.hit.server.ClientHandler;
+import com.hit.server.ComputePool;
+import javaNK.util.communication.JSON;
+import javaNK.util.communication.NetworkInformation;
+
+public class StubHandler implements ClientHandler
+{
+	private OpenGame openGame;
+	private NetworkInformation clientInfo;
+	private int playerIndex;
+	private volatile BoardGameHandler boardHandler;
+	private LongAdder sent;
+	
+	/**
+	 * @param openGame - The game the client is playing
+	 * @param clientInfo - The network information of the client
+	 * @param playerIndex - The index of the client (unique for every client of the open game)
+	 */
+	public StubHandler(OpenGame openGame, NetworkInformation clientInfo, int playerIndex) {
+		this.openGame = openGame;
+		this.clientInfo = clientInfo;
+		this.playerIndex = playerIndex;
+		this.boardHandler = openGame.getBoardHandler();
+		this.sent = new LongAdder();
+	}
+	
+	@Override
+	public void start() {}
+	
+	@Override
+	public void kill() {}
+	
+	@Override
+	public void send(JSON msg) { sent.increment(); }
+	
+	/**
+	 * @return the amount of messages that have been sent to the client.
+	 */
+	public long getSentAmount() { return sent.sum(); }
+	
+	@Override
+	public NetworkInformation getClientInfo() { return clientInfo; }
+	
+	@Override
+	public OpenGame getOpenGame() { return openGame; }
+	
+	@Override
+	public BoardGameHandler getBoardHandler() { return boardHandler; }
+	
+	@Override
+	public int getPlayerIndex() { return playerIndex; }
+	
+	@Override
+	public Game getGame() { return openGame.getGame(); }
+	
+	@Override
+	public ComputePool getComputePool() { return null; }
+	
+	@Override
+	public int heartbeat(int interval) { return 0; }
+	
+	@Override
+	public void reissueBoardHandler(BoardGameHandler handler) { boardHandler = handler; }
+}
\ No newline at end of file